@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasebenchmark;
+
+import br.com.pinter.tqdatabase.data.DatabaseReader;
+import br.com.pinter.tqdatabase.models.DbRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Database open, record lookup and full scan over the synthetic database.
+ */
+@State(Scope.Thread)
+public class DatabaseBenchmark {
+    @Param({"false", "true"})
+    public boolean memoryMapped;
+
+    private String[] databases;
+    private String[] recordIds;
+    private DatabaseReader uncached;
+    private DatabaseReader cached;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        databases = new String[]{Fixtures.directory().resolve(Fixtures.DATABASE).toString()};
+        recordIds = new String[Fixtures.RECORDS];
+        for (int i = 0; i < recordIds.length; i++) {
+            recordIds[i] = Fixtures.recordId(i);
+        }
+        uncached = DatabaseReader.builder(databases).withCache(false).withMemoryMapping(memoryMapped).build();
+        cached = DatabaseReader.builder(databases).withMemoryMapping(memoryMapped).build();
+        for (String id : recordIds) {
+            cached.getRecord(id);
+        }
+    }
+
+    // walks the records with a stride, so consecutive lookups don't hit neighbouring data
+    private String nextRecordId() {
+        next = (next + 7919) % recordIds.length;
+        return recordIds[next];
+    }
+
+    @Benchmark
+    public DatabaseReader open() throws IOException {
+        return DatabaseReader.builder(databases).withCache(false).withMemoryMapping(memoryMapped).build();
+    }
+
+    @Benchmark
+    public DbRecord getRecordCold() {
+        return uncached.getRecord(nextRecordId());
+    }
+
+    @Benchmark
+    public DbRecord getRecordCached() {
+        return cached.getRecord(nextRecordId());
+    }
+
+    @Benchmark
+    public void fullScan(Blackhole blackhole) {
+        for (String id : recordIds) {
+            blackhole.consume(uncached.getRecord(id));
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabasebenchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+
+/**
+ * Generates the synthetic database, resources and text archives used by the benchmarks.
+ * <p>
+ * Usage: <code>Fixtures &lt;output directory&gt;</code>
+ */
+public final class Fixtures {
+    static final String PROPERTY = "tqdatabase.fixtures";
+    static final String DATABASE = "database.arz";
+    static final String RESOURCES = "Resources.arc";
+    static final String TEXT = "Text_EN.arc";
+    static final int RECORDS = 20000;
+    static final int TEXTURES = 16;
+    static final int FONTS = 16;
+    static final int TEXT_FILES = 4;
+    static final int TAGS_PER_FILE = 5000;
+    static final int TEXTURE_WIDTH = 512;
+
+    private static final Charset CP1252 = Charset.forName("CP1252");
+    private static final int ARC_PART_SIZE = 64 * 1024;
+    private static final String[] CLASSES = {"Skill_Mastery", "Pet", "ItemRelic", "ArmorProtective_Head", "WeaponMelee_Sword"};
+
+    private Fixtures() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("usage: Fixtures <output directory>");
+        }
+        Path dir = Path.of(args[0]);
+        Files.createDirectories(dir);
+        writeDatabase(dir.resolve(DATABASE));
+        writeResources(dir.resolve(RESOURCES));
+        writeText(dir.resolve(TEXT));
+    }
+
+    static Path directory() {
+        String dir = System.getProperty(PROPERTY);
+        if (dir == null) {
+            throw new IllegalStateException("system property '" + PROPERTY + "' not set, run the benchmarks with gradle jmh");
+        }
+        return Path.of(dir);
+    }
+
+    static String recordId(int i) {
+        return String.format("records/bench/rec%05d.dbr", i);
+    }
+
+    static String textureName(int i) {
+        return String.format("bench/texture%02d.tex", i);
+    }
+
+    static String fontName(int i) {
+        return String.format("fonts/font%02d.fnt", i);
+    }
+
+    static String tag(int file, int i) {
+        return String.format("tagBench%d_%05d", file, i);
+    }
+
+    private static void writeDatabase(Path file) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndex = new HashMap<>();
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        ByteBuffer record = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] compressed = new byte[64 * 1024];
+        Deflater deflater = new Deflater();
+
+        for (int r = 0; r < RECORDS; r++) {
+            String recordClass = CLASSES[r % CLASSES.length];
+            record.clear();
+            putStrings(record, stringIndex, strings, "Class", recordClass);
+            putStrings(record, stringIndex, strings, "templateName", "database/templates/" + recordClass + ".tpl");
+            putStrings(record, stringIndex, strings, "FileDescription", "benchmark record " + r);
+            for (int v = 0; v < 8; v++) {
+                record.putShort((short) 0).putShort((short) 3).putInt(index(stringIndex, strings, "skillLevel" + v));
+                record.putInt(r).putInt(r + v).putInt(v);
+                record.putShort((short) 1).putShort((short) 2).putInt(index(stringIndex, strings, "characterAttribute" + v));
+                record.putFloat(r * 0.5f).putFloat(v * 1.5f);
+            }
+            record.putShort((short) 3).putShort((short) 1).putInt(index(stringIndex, strings, "isEnabled")).putInt(r % 2);
+            putStrings(record, stringIndex, strings, "skillName", recordId((r + 1) % RECORDS), recordId((r + 2) % RECORDS));
+
+            deflater.reset();
+            deflater.setInput(record.array(), 0, record.position());
+            deflater.finish();
+            int length = deflater.deflate(compressed);
+
+            int offset = data.size();
+            data.write(compressed, 0, length);
+
+            byte[] type = recordClass.getBytes(CP1252);
+            ByteBuffer entry = ByteBuffer.allocate(24 + type.length).order(ByteOrder.LITTLE_ENDIAN);
+            entry.putInt(index(stringIndex, strings, recordId(r))).putInt(type.length).put(type)
+                    .putInt(offset).putInt(length).putInt(0).putInt(0);
+            table.write(entry.array());
+        }
+        deflater.end();
+
+        ByteArrayOutputStream stringTable = new ByteArrayOutputStream();
+        stringTable.write(intLE(strings.size()));
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(CP1252);
+            stringTable.write(intLE(bytes.length));
+            stringTable.write(bytes);
+        }
+
+        int recordsTableStart = 24 + data.size();
+        int stringsTableStart = recordsTableStart + table.size();
+        ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x30052).putInt(recordsTableStart).putInt(table.size()).putInt(RECORDS)
+                .putInt(stringsTableStart).putInt(stringTable.size());
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(header.array());
+            data.writeTo(out);
+            table.writeTo(out);
+            stringTable.writeTo(out);
+            // footer with the checksums, not validated by the reader
+            out.write(new byte[16]);
+        }
+    }
+
+    private static void putStrings(ByteBuffer record, Map<String, Integer> stringIndex, List<String> strings,
+                                   String name, String... values) {
+        record.putShort((short) 2).putShort((short) values.length).putInt(index(stringIndex, strings, name));
+        for (String value : values) {
+            record.putInt(index(stringIndex, strings, value));
+        }
+    }
+
+    private static int index(Map<String, Integer> stringIndex, List<String> strings, String s) {
+        return stringIndex.computeIfAbsent(s, k -> {
+            strings.add(k);
+            return strings.size() - 1;
+        });
+    }
+
+    private static void writeResources(Path file) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        Random random = new Random(TEXTURES);
+        for (int i = 0; i < TEXTURES; i++) {
+            entries.put(textureName(i), texture(random));
+        }
+        for (int i = 0; i < FONTS; i++) {
+            byte[] font = new byte[4096 + i * 512];
+            random.nextBytes(font);
+            entries.put(fontName(i), font);
+        }
+        // textures are compressed in parts, fonts are stored
+        writeArc(file, entries, name -> name.endsWith(".tex"));
+    }
+
+    // TEX v1 with a DXT1 surface and a full chain of reversed mipmaps, the layout the converter has to reorder
+    private static byte[] texture(Random random) {
+        List<Integer> mipSizes = new ArrayList<>();
+        for (int w = TEXTURE_WIDTH; w >= 1; w /= 2) {
+            mipSizes.add(Math.max(1, (w + 3) / 4) * Math.max(1, (w + 3) / 4) * 8);
+        }
+        int surfaces = mipSizes.stream().mapToInt(Integer::intValue).sum();
+        int textureSize = 128 + surfaces;
+
+        ByteBuffer tex = ByteBuffer.allocate(12 + textureSize).order(ByteOrder.LITTLE_ENDIAN);
+        tex.put(new byte[]{'T', 'E', 'X', 1}).putInt(0).putInt(textureSize);
+        tex.put(new byte[]{'D', 'D', 'S', 'R'});
+        tex.putInt(124).putInt(0x1 | 0x2 | 0x4 | 0x1000 | 0x20000).putInt(TEXTURE_WIDTH).putInt(TEXTURE_WIDTH)
+                .putInt(0).putInt(0).putInt(mipSizes.size());
+        tex.position(tex.position() + 44);
+        tex.putInt(32).putInt(0x4).put(new byte[]{'D', 'X', 'T', '1'}).putInt(0).putInt(0).putInt(0).putInt(0).putInt(0);
+        tex.putInt(0x1000 | 0x8 | 0x400000).putInt(0).putInt(0).putInt(0).putInt(0);
+
+        // half random, half repeated blocks so the parts compress like real textures
+        byte[] surfaceData = new byte[surfaces];
+        random.nextBytes(surfaceData);
+        for (int i = 0; i < surfaceData.length; i += 16) {
+            surfaceData[i] = 0;
+            if ((i / 16) % 2 == 0) {
+                System.arraycopy(surfaceData, 0, surfaceData, i, Math.min(16, surfaceData.length - i));
+            }
+        }
+        tex.put(surfaceData);
+        return tex.array();
+    }
+
+    private static void writeText(Path file) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int f = 0; f < TEXT_FILES; f++) {
+            StringBuilder sb = new StringBuilder("\uFEFF// benchmark text file ").append(f).append("\r\n");
+            for (int i = 0; i < TAGS_PER_FILE; i++) {
+                sb.append(tag(f, i)).append('=').append("Benchmark text ").append(i)
+                        .append(" {^y}with a color code and some words to parse").append("\r\n");
+                if (i % 100 == 0) {
+                    sb.append("// section ").append(i / 100).append("\r\n");
+                }
+            }
+            entries.put(String.format("text_%d.txt", f), sb.toString().getBytes(StandardCharsets.UTF_16LE));
+        }
+        writeArc(file, entries, name -> true);
+    }
+
+    private static void writeArc(Path file, Map<String, byte[]> entries,
+                                 Predicate<String> compress) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream parts = new ByteArrayOutputStream();
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        int headerSize = 28;
+        int numParts = 0;
+        Deflater deflater = new Deflater();
+        byte[] compressed = new byte[ARC_PART_SIZE * 2];
+
+        for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+            byte[] content = e.getValue();
+            int entryOffset = headerSize + data.size();
+            int storageType;
+            int compressedSize;
+            int entryParts;
+            int firstPart = numParts;
+            if (compress.test(e.getKey())) {
+                storageType = 3;
+                compressedSize = 0;
+                entryParts = 0;
+                for (int pos = 0; pos < content.length; pos += ARC_PART_SIZE) {
+                    int length = Math.min(ARC_PART_SIZE, content.length - pos);
+                    deflater.reset();
+                    deflater.setInput(content, pos, length);
+                    deflater.finish();
+                    int clen = deflater.deflate(compressed);
+                    parts.write(intLE(headerSize + data.size()));
+                    parts.write(intLE(clen));
+                    parts.write(intLE(length));
+                    data.write(compressed, 0, clen);
+                    compressedSize += clen;
+                    entryParts++;
+                    numParts++;
+                }
+            } else {
+                storageType = 1;
+                compressedSize = content.length;
+                entryParts = 0;
+                data.write(content);
+            }
+
+            byte[] name = e.getKey().getBytes(CP1252);
+            int nameOffset = names.size();
+            names.write(name);
+            names.write(0);
+
+            ByteBuffer record = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+            record.putInt(storageType).putInt(entryOffset).putInt(compressedSize).putInt(content.length)
+                    .putInt(0).putInt(0).putInt(0)
+                    .putInt(entryParts).putInt(firstPart).putInt(name.length).putInt(nameOffset);
+            records.write(record.array());
+        }
+        deflater.end();
+
+        int tocOffset = headerSize + data.size();
+        ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'A', 'R', 'C', 0}).putInt(3).putInt(entries.size()).putInt(numParts)
+                .putInt(parts.size() + names.size()).putInt(records.size()).putInt(tocOffset);
+
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(header.array());
+            data.writeTo(out);
+            parts.writeTo(out);
+            names.writeTo(out);
+            records.writeTo(out);
+        }
+    }
+
+    private static byte[] intLE(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasebenchmark;
+
+import br.com.pinter.tqdatabase.data.ResourceReader;
+import br.com.pinter.tqdatabase.data.TextureConverter;
+import br.com.pinter.tqdatabase.models.Texture;
+import br.com.pinter.tqdatabase.models.TextureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ARC entry extraction and texture conversion over the synthetic resources archive.
+ */
+@State(Scope.Thread)
+public class ResourceBenchmark {
+    @Param({"false", "true"})
+    public boolean parallelInflation;
+
+    private ResourceReader reader;
+    private byte[] textureData;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ResourceReader.Builder builder = ResourceReader.builder(Fixtures.directory().resolve(Fixtures.RESOURCES));
+        if (parallelInflation) {
+            // the fixture textures are below the default threshold
+            builder.withParallelInflation(ForkJoinPool.commonPool(), 0);
+        }
+        reader = builder.build();
+        textureData = reader.getData(Fixtures.textureName(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+    }
+
+    @Benchmark
+    public byte[] extractCompressed() throws IOException {
+        next = (next + 1) % Fixtures.TEXTURES;
+        return reader.getData(Fixtures.textureName(next));
+    }
+
+    @Benchmark
+    public long streamCompressed() throws IOException {
+        next = (next + 1) % Fixtures.TEXTURES;
+        try (InputStream in = reader.openStream(Fixtures.textureName(next))) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public byte[] extractStored() throws IOException {
+        next = (next + 1) % Fixtures.FONTS;
+        return reader.getData(Fixtures.fontName(next));
+    }
+
+    @Benchmark
+    public ByteBuffer bufferStored() throws IOException {
+        next = (next + 1) % Fixtures.FONTS;
+        return reader.getBuffer(Fixtures.fontName(next));
+    }
+
+    @Benchmark
+    public Texture textureToDds() {
+        // the converter rewrites the header in place, each invocation needs its own copy
+        Texture texture = new Texture(Fixtures.textureName(0), textureData.clone());
+        return new TextureConverter(texture).convert(TextureType.DDS, false);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasebenchmark;
+
+import br.com.pinter.tqdatabase.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Loading of all text files from the synthetic text archive, and a single lookup loading strings on demand.
+ */
+@State(Scope.Thread)
+public class TextBenchmark {
+    private String[] paths;
+    private String lastTag;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        paths = new String[]{Fixtures.directory().toString()};
+        lastTag = Fixtures.tag(Fixtures.TEXT_FILES - 1, Fixtures.TAGS_PER_FILE - 1);
+    }
+
+    @Benchmark
+    public String loadText() throws IOException {
+        Text text = new Text(paths, "EN", false);
+        text.preload();
+        return text.getString(lastTag);
+    }
+
+    @Benchmark
+    public String lazyLookup() throws IOException {
+        try (Text text = Text.lazy(paths, "EN")) {
+            return text.getString(lastTag);
+        }
+    }
+}
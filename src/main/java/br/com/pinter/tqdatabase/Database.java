@@ -60,7 +60,14 @@ public class Database {
     }
 
     public Database(String[] fileNames, boolean useCache) throws IOException {
-        databaseReader = new DatabaseReader(fileNames, useCache);
+        this(new DatabaseReader(fileNames, useCache));
+    }
+
+    /**
+     * @param databaseReader An already configured {@link DatabaseReader}, see {@link DatabaseReader#builder(String[])}
+     */
+    public Database(DatabaseReader databaseReader) {
+        this.databaseReader = databaseReader;
         skills = new Skills(databaseReader);
         player = new Player(databaseReader);
         teleports = new Teleports(databaseReader);
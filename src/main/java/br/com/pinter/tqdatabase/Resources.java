@@ -20,9 +20,9 @@
 
 package br.com.pinter.tqdatabase;
 
+import br.com.pinter.tqdatabase.data.ExtractOptions;
 import br.com.pinter.tqdatabase.data.ResourceReader;
 import br.com.pinter.tqdatabase.data.TextureConverter;
-import br.com.pinter.tqdatabase.models.DbRecord;
 import br.com.pinter.tqdatabase.models.ResourceFile;
 import br.com.pinter.tqdatabase.models.ResourceType;
 import br.com.pinter.tqdatabase.models.Texture;
@@ -41,7 +41,7 @@ import java.util.stream.Collectors;
  * Class to access resources from game
  */
 @SuppressWarnings({"UnusedReturnValue", "unused"})
-public class Resources implements TQService {
+public class Resources implements TQService, AutoCloseable {
     private static final System.Logger logger = System.getLogger(Resources.class.getName());
     private final Path path;
     private final ResourceReader reader;
@@ -75,7 +75,7 @@ public class Resources implements TQService {
     }
 
     public ResourceFile getFile(String resourceName) throws IOException {
-        if (reader.list().contains(DbRecord.normalizeRecordPath(resourceName))) {
+        if (reader.contains(resourceName)) {
             ResourceType rt = ResourceType.of(resourceName);
             if (rt == ResourceType.TEXTURE) {
                 return new Texture(resourceName, reader.getData(resourceName));
@@ -91,6 +91,18 @@ public class Resources implements TQService {
         return new TextureConverter(reader.readTexture(name)).convert(TextureType.DDS, false).getData();
     }
 
+    /**
+     * Extracts all entries of the archive to <b><code>target</code></b>, without holding them all in memory.
+     *
+     * @param target  The output directory
+     * @param options The extraction options, e.g. {@link ExtractOptions#defaults()}
+     * @return the number of entries extracted
+     * @see ResourceReader#extractAll(Path, ExtractOptions)
+     */
+    public int extractAll(Path target, ExtractOptions options) throws IOException {
+        return reader.extractAll(target, options);
+    }
+
     public Map<String, ResourceFile> getAll() throws IOException {
         return getAllFromArchive(null);
     }
@@ -120,4 +132,12 @@ public class Resources implements TQService {
 
         return ret;
     }
+
+    /**
+     * Closes the archive file. Resources can't be read after this.
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
 }
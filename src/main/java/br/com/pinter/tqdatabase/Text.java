@@ -22,14 +22,24 @@ package br.com.pinter.tqdatabase;
 
 import br.com.pinter.tqdatabase.cache.CacheText;
 import br.com.pinter.tqdatabase.data.ResourceReader;
+import br.com.pinter.tqdatabase.data.TextIndex;
+import br.com.pinter.tqdatabase.models.ResourceType;
+import br.com.pinter.tqdatabase.models.TextTable;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
 
 import static java.lang.System.Logger.Level.ERROR;
@@ -37,15 +47,29 @@ import static java.lang.System.Logger.Level.INFO;
 
 /**
  * Class to access Text resources from game
+ * <p>
+ * When a tag is defined more than once, the last definition wins: paths listed last override those listed first, and
+ * in each archive the files later in the archive table of contents override the earlier ones. Versions before the
+ * parallel loading merged the files of an archive in hash order, so the winning definition of a tag repeated in
+ * several files of the same archive could differ.
  */
 @SuppressWarnings({"UnusedReturnValue", "unused"})
-public class Text implements TQService {
+public class Text implements TQService, AutoCloseable {
     private static final System.Logger logger = System.getLogger(Text.class.getName());
 
-    private final Map<String, String> tags;
+    // tags of all text files, when not cached
+    private volatile Map<String, String> tags;
     private final String lang;
     private final List<String> pathList;
     private final boolean useCache;
+    // the tags are shared with other instances with the same language and paths when cached
+    private final String cacheKey;
+    private final Executor executor;
+    // index of the tags when values are loaded on demand, see lazy()
+    private final boolean lazy;
+    // readers of the index hold the read lock, building and closing it take the write lock
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private TextIndex index;
 
     /**
      * Constructor for english (EN) text resources.
@@ -76,20 +100,119 @@ public class Text implements TQService {
      * @param useCache Disable cache
      */
     public Text(String[] paths, String lang, boolean useCache) {
-        this.tags = new HashMap<>();
-        this.pathList = Arrays.asList(paths);
+        this(paths, lang, useCache, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param paths    Array of ordered absolute paths for the Text directories containing all Text_* files.
+     *                 Strings from files loaded last will override those loaded first.
+     * @param lang     The language to load text resources
+     * @param useCache Disable cache
+     * @param executor The executor parsing the text files in parallel, {@link ForkJoinPool#commonPool()} by default.
+     *                 A direct executor (<code>Runnable::run</code>) parses them on the calling thread.
+     */
+    public Text(String[] paths, String lang, boolean useCache, Executor executor) {
+        this(paths, lang, useCache, executor, false);
+    }
+
+    private Text(String[] paths, String lang, boolean useCache, Executor executor, boolean lazy) {
+        this.lazy = lazy;
+        this.executor = Objects.requireNonNull(executor);
+        this.pathList = List.of(paths);
         this.useCache = useCache;
         this.lang = lang.toUpperCase();
+        this.cacheKey = CacheText.key(this.lang, pathList);
+    }
 
+    /**
+     * Text resources loaded on demand. The first access only finds the tags of all text files, and each string is
+     * decoded from its text file when requested, for applications using a few strings. The text files are kept open
+     * until {@link #close()}. The strings are not shared with other instances.
+     *
+     * @param paths Array of ordered absolute paths for the Text directories containing all Text_* files.
+     *              Strings from files loaded last will override those loaded first.
+     * @param lang  The language to load text resources
+     * @return a new {@link Text} loading strings on demand
+     */
+    public static Text lazy(String[] paths, String lang) {
+        return new Text(paths, lang, false, ForkJoinPool.commonPool(), true);
     }
 
     /**
-     * Method to preload all strings
+     * Method to preload all strings, or the index of all tags when strings are loaded on demand
      */
     public void preload() throws IOException {
-        if ((useCache && CacheText.getInstance().isEmpty()) || (!useCache && tags.isEmpty())) {
-            loadTextFromAllPaths();
+        if (lazy) {
+            indexLock.writeLock().lock();
+            try {
+                buildIndex();
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+        } else {
+            getTags();
+        }
+    }
+
+    // must hold the write lock
+    private void buildIndex() throws IOException {
+        if (index == null) {
+            index = TextIndex.build(resolveArchives(), executor);
+        }
+    }
+
+    private String getIndexedString(String tag) throws IOException {
+        indexLock.readLock().lock();
+        try {
+            if (index != null) {
+                return index.get(tag);
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        indexLock.writeLock().lock();
+        try {
+            buildIndex();
+            // downgrade, the index can't be closed before the value is read
+            indexLock.readLock().lock();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        try {
+            return index.get(tag);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private void closeIndex() throws IOException {
+        indexLock.writeLock().lock();
+        try {
+            if (index != null) {
+                index.close();
+                index = null;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private Map<String, String> getTags() throws IOException {
+        Map<String, String> ret = useCache ? CacheText.getInstance().get(cacheKey) : tags;
+        return ret != null ? ret : load();
+    }
+
+    private synchronized Map<String, String> load() throws IOException {
+        Map<String, String> ret = useCache ? CacheText.getInstance().get(cacheKey) : tags;
+        if (ret == null) {
+            ret = loadTextFromAllPaths();
+            if (useCache) {
+                CacheText.getInstance().put(cacheKey, ret);
+            } else {
+                tags = ret;
+            }
         }
+        return ret;
     }
 
     /**
@@ -99,28 +222,73 @@ public class Text implements TQService {
      * @return returns the string associated to the <b><code>tag</code></b>
      */
     public String getString(String tag) throws IOException {
-        preload();
+        if (lazy) {
+            return getIndexedString(tag);
+        }
+        Map<String, String> t = getTags();
 
         if (tag == null) {
             return null;
         }
 
-        if (useCache) {
-            if (CacheText.getInstance().get(tag) == null && this.tags.get(tag) != null) {
-                CacheText.getInstance().put(tag, tags.get(tag));
+        return t.get(tag);
+    }
+
+    // all text files of all paths are parsed concurrently, and merged in the order of the paths and of the files in
+    // each archive table of contents, see the class documentation for the override order
+    private Map<String, String> loadTextFromAllPaths() throws IOException {
+        List<ResourceReader> readers = new ArrayList<>();
+        List<CompletableFuture<Map<String, String>>> files = new ArrayList<>();
+        try {
+            for (Path filename : resolveArchives()) {
+                logger.log(INFO, "Loading text from ''{0}''", filename);
+                ResourceReader resource = ResourceReader.builder(filename).withCache(useCache).build();
+                readers.add(resource);
+                for (String f : resource.list(ResourceType.TEXT)) {
+                    files.add(CompletableFuture.supplyAsync(() -> readText(resource, f), executor));
+                }
+            }
+            if (files.size() == 1) {
+                return join(files.getFirst());
+            }
+            TextTable.Builder ret = TextTable.builder();
+            // putAll copies the packed text of each file table without decoding it
+            for (CompletableFuture<Map<String, String>> f : files) {
+                ret.putAll(join(f));
+            }
+            return ret.build();
+        } finally {
+            // the archives are closed after all files are parsed, even when one of them failed
+            CompletableFuture.allOf(files.toArray(new CompletableFuture<?>[0])).handle((r, t) -> null).join();
+            for (ResourceReader r : readers) {
+                r.close();
             }
-            return CacheText.getInstance().get(tag);
-        } else {
-            return tags.get(tag);
         }
     }
 
-    private void loadTextFromAllPaths() throws IOException {
-        for (String p : pathList) {
-            loadText(resolveArcFilename(p));
+    private static Map<String, String> readText(ResourceReader resource, String filename) {
+        try {
+            return resource.readText(filename);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    private static Map<String, String> join(CompletableFuture<Map<String, String>> file) throws IOException {
+        try {
+            return file.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private List<Path> resolveArchives() {
+        return pathList.stream().map(this::resolveArcFilename).toList();
+    }
+
     private Path resolveArcFilename(String path) {
         Path textLang = null;
         Path textEn = null;
@@ -150,14 +318,32 @@ public class Text implements TQService {
         }
     }
 
-    private void loadText(Path filename) throws IOException {
-        ResourceReader resource = ResourceReader.builder(filename).withCache(useCache).build();
-        logger.log(INFO, "Loading text from ''{0}''", filename);
-        this.tags.putAll(resource.readText());
+    /**
+     * Removes the text of this language and paths from the cache, the text is loaded again on the next access.
+     * Texts cached for other languages or paths are kept. Instances loading strings on demand close their text files
+     * and drop their index instead, after the lookups in progress.
+     */
+    public void clearCache() {
+        logger.log(INFO, "Clearing text cache for ''{0}''", lang);
+        if (lazy) {
+            try {
+                closeIndex();
+            } catch (IOException e) {
+                logger.log(ERROR, "Error closing text files", e);
+            }
+            return;
+        }
+        synchronized (this) {
+            CacheText.getInstance().remove(cacheKey);
+            tags = null;
+        }
     }
 
-    public void clearCache() {
-        logger.log(INFO, "Clearing text cache");
-        CacheText.getInstance().clear();
+    /**
+     * Closes the text files kept open by instances loading strings on demand.
+     */
+    @Override
+    public void close() throws IOException {
+        closeIndex();
     }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabase.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+class BoundedCacheStore<K, V> implements CacheStore<K, V> {
+    private static final System.Logger logger = System.getLogger(BoundedCacheStore.class.getName());
+
+    private final CachePolicy policy;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Node<V>> data;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long weight;
+
+    BoundedCacheStore(CachePolicy policy, ToLongFunction<V> weigher) {
+        this.policy = policy;
+        this.weigher = weigher;
+        this.data = new LinkedHashMap<>(16, 0.75f, policy.getEviction() == CachePolicy.Eviction.LRU);
+    }
+
+    @Override
+    public V get(K key) {
+        lock.lock();
+        try {
+            Node<V> n = data.get(key);
+            return n != null ? n.value() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        Node<V> node = new Node<>(value, weigher.applyAsLong(value));
+        lock.lock();
+        try {
+            Node<V> old = data.put(key, node);
+            if (old != null) {
+                weight -= old.weight();
+            }
+            weight += node.weight();
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // removes the eldest entries until the cache is within the policy limits, may remove the entry just added
+    private void evict() {
+        Iterator<Map.Entry<K, Node<V>>> it = data.entrySet().iterator();
+        while (it.hasNext() && (data.size() > policy.getMaximumEntries() || weight > policy.getMaximumBytes())) {
+            Map.Entry<K, Node<V>> e = it.next();
+            weight -= e.getValue().weight();
+            it.remove();
+            logger.log(System.Logger.Level.TRACE, "evicted ''{0}''", e.getKey());
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        lock.lock();
+        try {
+            Node<V> old = data.remove(key);
+            if (old != null) {
+                weight -= old.weight();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeIf(Predicate<K> filter) {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<K, Node<V>>> it = data.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, Node<V>> e = it.next();
+                if (filter.test(e.getKey())) {
+                    weight -= e.getValue().weight();
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            data.clear();
+            weight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        lock.lock();
+        try {
+            return data.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return data.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Node<V>(V value, long weight) {
+    }
+}
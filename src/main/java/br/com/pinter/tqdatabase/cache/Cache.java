@@ -20,11 +20,27 @@
 
 package br.com.pinter.tqdatabase.cache;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 abstract class Cache<K, V> {
-    private final Map<K, V> data = new ConcurrentHashMap<>();
+    private final CacheStore<K, V> data;
+
+    Cache() {
+        this.data = new CacheStore.Unbounded<>();
+    }
+
+    /**
+     * @param policy  The limits and eviction policy
+     * @param weigher Function returning the approximate size in bytes of a value
+     */
+    Cache(CachePolicy policy, ToLongFunction<V> weigher) {
+        if (policy.isBounded()) {
+            this.data = new BoundedCacheStore<>(policy, weigher);
+        } else {
+            this.data = new CacheStore.Unbounded<>();
+        }
+    }
 
     public V get(K key) {
         return data.get(key);
@@ -38,6 +54,13 @@ abstract class Cache<K, V> {
         data.remove(key);
     }
 
+    /**
+     * @param filter Predicate returning <b><code>true</code></b> for the keys to remove
+     */
+    public void removeIf(Predicate<K> filter) {
+        data.removeIf(filter);
+    }
+
     public void clear() {
         data.clear();
     }
@@ -51,6 +74,13 @@ abstract class Cache<K, V> {
     }
 
     public boolean isEmpty() {
-        return data.isEmpty();
+        return data.size() == 0;
+    }
+
+    /**
+     * @return the approximate size in bytes of all values, only tracked by bounded caches
+     */
+    public long weight() {
+        return data.weight();
     }
 }
@@ -21,16 +21,42 @@
 package br.com.pinter.tqdatabase.cache;
 
 import br.com.pinter.tqdatabase.models.DbRecord;
+import br.com.pinter.tqdatabase.models.DbVariable;
 
 public class CacheDbRecord extends Cache<String, DbRecord> {
-    private CacheDbRecord() {
+    /**
+     * Creates an unbounded cache
+     */
+    public CacheDbRecord() {
+    }
+
+    /**
+     * Creates a cache limited by <b><code>policy</code></b>, the size of each record is estimated from its variables.
+     *
+     * @param policy The limits and eviction policy
+     */
+    public CacheDbRecord(CachePolicy policy) {
+        super(policy, CacheDbRecord::estimateSize);
     }
 
     private static class SingletonHolder {
         private static final CacheDbRecord instance = new CacheDbRecord();
     }
 
+    /**
+     * @return a process-wide instance, readers only use it when it is passed to
+     * {@link br.com.pinter.tqdatabase.data.DatabaseReader.Builder#withSharedCache(CacheDbRecord)}
+     */
     public static CacheDbRecord getInstance() {
         return SingletonHolder.instance;
     }
+
+    // approximate retained size, string values are shared with the database string table and count as references
+    static long estimateSize(DbRecord r) {
+        long size = 64;
+        for (DbVariable v : r.getVariables().values()) {
+            size += 96 + 16 + (long) v.valuesCount() * (v.getType() == DbVariable.Type.STRING ? 8 : 4);
+        }
+        return size;
+    }
 }
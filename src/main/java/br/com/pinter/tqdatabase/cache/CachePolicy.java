@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabase.cache;
+
+/**
+ * Limits and eviction policy of a cache. A policy without limits keeps every entry until it is removed or the cache is
+ * cleared.
+ */
+public final class CachePolicy {
+    private static final CachePolicy UNBOUNDED = builder().build();
+
+    private final long maximumEntries;
+    private final long maximumBytes;
+    private final Eviction eviction;
+
+    private CachePolicy(long maximumEntries, long maximumBytes, Eviction eviction) {
+        this.maximumEntries = maximumEntries;
+        this.maximumBytes = maximumBytes;
+        this.eviction = eviction;
+    }
+
+    public static CachePolicy unbounded() {
+        return UNBOUNDED;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public long getMaximumEntries() {
+        return maximumEntries;
+    }
+
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    public boolean isBounded() {
+        return maximumEntries != Long.MAX_VALUE || maximumBytes != Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "CachePolicy{" +
+                "maximumEntries=" + maximumEntries +
+                ", maximumBytes=" + maximumBytes +
+                ", eviction=" + eviction +
+                '}';
+    }
+
+    public enum Eviction {
+        /**
+         * Evicts the least recently used entry first
+         */
+        LRU,
+        /**
+         * Evicts the oldest entry first, reads don't change the eviction order
+         */
+        FIFO
+    }
+
+    public static class Builder {
+        private long maximumEntries = Long.MAX_VALUE;
+        private long maximumBytes = Long.MAX_VALUE;
+        private Eviction eviction = Eviction.LRU;
+
+        public Builder() {
+        }
+
+        /**
+         * @param maximumEntries Maximum number of entries kept in the cache
+         * @return this builder
+         */
+        public Builder withMaximumEntries(long maximumEntries) {
+            if (maximumEntries <= 0) {
+                throw new IllegalArgumentException("maximumEntries must be positive");
+            }
+            this.maximumEntries = maximumEntries;
+            return this;
+        }
+
+        /**
+         * @param maximumBytes Maximum approximate size in bytes of all values kept in the cache
+         * @return this builder
+         */
+        public Builder withMaximumBytes(long maximumBytes) {
+            if (maximumBytes <= 0) {
+                throw new IllegalArgumentException("maximumBytes must be positive");
+            }
+            this.maximumBytes = maximumBytes;
+            return this;
+        }
+
+        public Builder withEviction(Eviction eviction) {
+            this.eviction = eviction;
+            return this;
+        }
+
+        public CachePolicy build() {
+            return new CachePolicy(maximumEntries, maximumBytes, eviction);
+        }
+    }
+}
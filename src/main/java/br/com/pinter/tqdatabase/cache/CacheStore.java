@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabase.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+interface CacheStore<K, V> {
+    V get(K key);
+
+    void put(K key, V value);
+
+    void remove(K key);
+
+    void removeIf(Predicate<K> filter);
+
+    void clear();
+
+    boolean containsKey(K key);
+
+    int size();
+
+    long weight();
+
+    class Unbounded<K, V> implements CacheStore<K, V> {
+        private final Map<K, V> data = new ConcurrentHashMap<>();
+
+        @Override
+        public V get(K key) {
+            return data.get(key);
+        }
+
+        @Override
+        public void put(K key, V value) {
+            data.put(key, value);
+        }
+
+        @Override
+        public void remove(K key) {
+            data.remove(key);
+        }
+
+        @Override
+        public void removeIf(Predicate<K> filter) {
+            data.keySet().removeIf(filter);
+        }
+
+        @Override
+        public void clear() {
+            data.clear();
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return data.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return data.size();
+        }
+
+        @Override
+        public long weight() {
+            return 0;
+        }
+    }
+}
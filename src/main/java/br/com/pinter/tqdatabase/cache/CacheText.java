@@ -20,8 +20,16 @@
 
 package br.com.pinter.tqdatabase.cache;
 
-
-public class CacheText extends Cache<String, String> {
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Text tables loaded by {@link br.com.pinter.tqdatabase.Text}, one entry for each language and list of text
+ * directories, so texts of different languages or mods are kept at the same time without overriding each other.
+ */
+public class CacheText extends Cache<String, Map<String, String>> {
     private CacheText() {
     }
 
@@ -32,4 +40,16 @@ public class CacheText extends Cache<String, String> {
     public static CacheText getInstance() {
         return SingletonHolder.instance;
     }
+
+    /**
+     * @param language The text language
+     * @param paths    The ordered list of text directories
+     * @return the key of the text table loaded from <b><code>paths</code></b> for <b><code>language</code></b>, the
+     * same directories given as relative or absolute paths share the key
+     */
+    public static String key(String language, List<String> paths) {
+        return language.toUpperCase() + ":" + paths.stream()
+                .map(p -> Path.of(p).toAbsolutePath().normalize().toString())
+                .collect(Collectors.joining("|"));
+    }
 }
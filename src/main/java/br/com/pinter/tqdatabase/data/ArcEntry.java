@@ -27,14 +27,16 @@ import java.util.List;
 
 class ArcEntry {
     private final String filename;
+    private final String path;
     private final StorageType storageType;
     private final int fileOffset;
     private final int compressedSize;
     private final int realSize;
     private final List<DataBlock> parts = new ArrayList<>();
 
-    ArcEntry(String filename, StorageType storageType, int fileOffset, int compressedSize, int realSize) {
+    ArcEntry(String filename, String path, StorageType storageType, int fileOffset, int compressedSize, int realSize) {
         this.filename = filename;
+        this.path = path;
         this.storageType = storageType;
         this.fileOffset = fileOffset;
         this.compressedSize = compressedSize;
@@ -45,6 +47,13 @@ class ArcEntry {
         return filename;
     }
 
+    /**
+     * @return the entry name as stored in the archive, not normalized
+     */
+    String getPath() {
+        return path;
+    }
+
     StorageType getStorageType() {
         return storageType;
     }
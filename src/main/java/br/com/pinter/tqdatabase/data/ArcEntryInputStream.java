@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabase.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads an ARC entry from the archive channel on demand. Compressed entries are inflated part by part through a
+ * fixed size buffer, so the memory used doesn't depend on the entry size. Not thread-safe.
+ */
+class ArcEntryInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 8192;
+    private final ArcFile archive;
+    private final ArcEntry entry;
+    private final List<DataBlock> parts;
+    // reused by read(), single byte reads don't allocate
+    private final byte[] single = new byte[1];
+    private Inflater inflater;
+    private byte[] input;
+    private int nextPart;
+    private long position;
+    private int compressedRemaining;
+    private int partRemaining;
+    private long remaining;
+    private boolean closed;
+
+    ArcEntryInputStream(ArcFile archive, ArcEntry entry) {
+        this.archive = archive;
+        this.entry = entry;
+        this.parts = entry.getParts();
+        this.remaining = entry.getRealSize();
+        if (entry.isCompressed()) {
+            this.inflater = new Inflater(true);
+            this.input = new byte[BUFFER_SIZE];
+        } else {
+            this.position = entry.getFileOffset();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (remaining == 0) {
+            return -1;
+        }
+        return entry.isCompressed() ? readCompressed(b, off, len) : readStored(b, off, len);
+    }
+
+    private int readStored(byte[] b, int off, int len) throws IOException {
+        int n = archive.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+        if (n < 0) {
+            throw new EOFException(String.format("Unexpected end of file '%s' at offset %d", archive.getArcFileName(), position));
+        }
+        position += n;
+        remaining -= n;
+        return n;
+    }
+
+    private int readCompressed(byte[] b, int off, int len) throws IOException {
+        try {
+            while (true) {
+                if (partRemaining == 0) {
+                    nextPart();
+                }
+                if (inflater.needsInput()) {
+                    fill();
+                }
+                int n = inflater.inflate(b, off, Math.min(len, partRemaining));
+                if (n > 0) {
+                    partRemaining -= n;
+                    remaining -= n;
+                    return n;
+                }
+                if (inflater.finished() || inflater.needsDictionary()) {
+                    throw new IOException(String.format("Truncated part %d of '%s' in '%s'",
+                            nextPart - 1, entry.getFilename(), archive.getArcFileName()));
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(String.format("Corrupt part %d of '%s' in '%s'",
+                    nextPart - 1, entry.getFilename(), archive.getArcFileName()), e);
+        }
+    }
+
+    // each part is a zlib stream, skip the 2 bytes header and inflate the raw deflate data
+    private void nextPart() throws IOException {
+        if (nextPart >= parts.size()) {
+            throw new EOFException(String.format("Missing parts for '%s' in '%s'", entry.getFilename(), archive.getArcFileName()));
+        }
+        DataBlock part = parts.get(nextPart++);
+        if (part.compressedSize() < 2) {
+            throw new IOException(String.format("Invalid part at offset %d in '%s'", part.fileOffset(), archive.getArcFileName()));
+        }
+        inflater.reset();
+        position = part.fileOffset() + 2L;
+        compressedRemaining = part.compressedSize() - 2;
+        partRemaining = part.realSize();
+    }
+
+    private void fill() throws IOException {
+        if (compressedRemaining == 0) {
+            throw new EOFException(String.format("Truncated part %d of '%s' in '%s'",
+                    nextPart - 1, entry.getFilename(), archive.getArcFileName()));
+        }
+        int n = archive.read(ByteBuffer.wrap(input, 0, Math.min(input.length, compressedRemaining)), position);
+        if (n < 0) {
+            throw new EOFException(String.format("Unexpected end of file '%s' at offset %d", archive.getArcFileName(), position));
+        }
+        position += n;
+        compressedRemaining -= n;
+        inflater.setInput(input, 0, n);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || closed || entry.isCompressed()) {
+            return super.skip(n);
+        }
+        long skipped = Math.min(n, remaining);
+        position += skipped;
+        remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return closed || entry.isCompressed() ? 0 : (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
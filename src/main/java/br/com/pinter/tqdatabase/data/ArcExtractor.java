@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabase.data;
+
+import br.com.pinter.tqdatabase.models.Texture;
+import br.com.pinter.tqdatabase.models.TextureType;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.System.Logger.Level.INFO;
+import static java.lang.System.Logger.Level.WARNING;
+
+/**
+ * Extracts the entries of an archive to a directory through a pipeline of read, inflate, convert and write stages.
+ * Reading and writing run on one pool, inflating and converting on another, and the number of entries between the
+ * first and the last stage is bounded, so memory use doesn't grow with the archive size.
+ */
+class ArcExtractor {
+    private static final System.Logger logger = System.getLogger(ArcExtractor.class.getName());
+    private final ArcFile archive;
+    private final ExtractOptions options;
+
+    ArcExtractor(ArcFile archive, ExtractOptions options) {
+        this.archive = archive;
+        this.options = options;
+    }
+
+    int extractAll(Path target) throws IOException {
+        Path root = target.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        List<String> names = options.getResourceType() == null
+                ? archive.listRecords() : archive.listRecords(options.getResourceType());
+
+        int maxInFlight = options.getMaxInFlight();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger extracted = new AtomicInteger();
+
+        // named threads make the pools identifiable in thread dumps
+        try (ExecutorService io = Executors.newFixedThreadPool(options.getParallelism(),
+                Thread.ofPlatform().name("arc-extract-io-", 0).factory());
+             ExecutorService cpu = Executors.newFixedThreadPool(options.getParallelism(),
+                     Thread.ofPlatform().name("arc-extract-cpu-", 0).factory())) {
+            for (String name : names) {
+                inFlight.acquire();
+                if (failure.get() != null) {
+                    inFlight.release();
+                    break;
+                }
+                ArcEntry entry = archive.getEntry(name);
+                CompletableFuture.supplyAsync(() -> read(entry), io)
+                        .thenApplyAsync(this::inflate, cpu)
+                        .thenApplyAsync(this::convert, cpu)
+                        .thenAcceptAsync(e -> write(root, e), io)
+                        .whenComplete((v, t) -> {
+                            if (t != null) {
+                                failure.compareAndSet(null, t instanceof CompletionException ? t.getCause() : t);
+                            } else {
+                                extracted.incrementAndGet();
+                            }
+                            inFlight.release();
+                        });
+            }
+            // wait for the entries still in the pipeline
+            inFlight.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction of '" + archive.getArcFileName() + "' interrupted");
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof UncheckedIOException e) {
+            throw e.getCause();
+        } else if (t != null) {
+            throw new IOException(String.format("Error extracting '%s'", archive.getArcFileName()), t);
+        }
+        logger.log(INFO, "Extracted ''{0}'' entries from ''{1}'' to ''{2}''", extracted.get(), archive.getArcFileName(), root);
+        return extracted.get();
+    }
+
+    private ArcFile.RawEntry read(ArcEntry entry) {
+        try {
+            return archive.readRaw(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Extracted inflate(ArcFile.RawEntry raw) {
+        try {
+            return new Extracted(raw.entry().getPath(), archive.inflate(raw));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Extracted convert(Extracted e) {
+        if (!options.isConvertTextures() || !e.path().toUpperCase(Locale.ROOT).endsWith(".TEX")) {
+            return e;
+        }
+        try {
+            // the converter rewrites the header in place, keep the original to write it if the conversion fails
+            Texture texture = new Texture(e.path(), e.data().clone());
+            if (!EnumSet.of(TextureType.TEXV1, TextureType.TEXV2).contains(texture.getTextureType())) {
+                return e;
+            }
+            byte[] dds = new TextureConverter(texture).convert(TextureType.DDS, false).getData();
+            return new Extracted(e.path().substring(0, e.path().length() - 4) + ".dds", dds);
+        } catch (RuntimeException ex) {
+            logger.log(WARNING, "Texture ''{0}'' not converted: {1}", e.path(), ex.getMessage());
+            return e;
+        }
+    }
+
+    private void write(Path root, Extracted e) {
+        Path file = root.resolve(e.path().replace('\\', '/')).normalize();
+        try {
+            if (!file.startsWith(root) || file.equals(root)) {
+                throw new IOException(String.format("Invalid entry path '%s' in '%s'", e.path(), archive.getArcFileName()));
+            }
+            Files.createDirectories(file.getParent());
+            Files.write(file, e.data());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Extracted(String path, byte[] data) {
+    }
+}
@@ -20,27 +20,60 @@
 
 package br.com.pinter.tqdatabase.data;
 
+import br.com.pinter.tqdatabase.models.ResourceType;
 import br.com.pinter.tqdatabase.models.StorageType;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
-import static java.lang.System.Logger.Level.ERROR;
 import static java.lang.System.Logger.Level.TRACE;
 
-class ArcFile {
+class ArcFile implements AutoCloseable {
     private static final System.Logger logger = System.getLogger(ArcFile.class.getName());
+    private static final int HEADER_SIZE = 28;
+    private static final Charset FILENAME_CHARSET = Charset.forName("CP1252");
     private final Map<String, ArcEntry> records;
+    private final List<String> names;
+    private final Map<ResourceType, List<String>> namesByType;
     private final Path arcFileName;
+    // kept open for the lifetime of the archive, entries are read with positional reads
+    private final FileChannel channel;
+    private volatile MappedByteBuffer mapping;
+    private final Executor inflateExecutor;
+    private final int parallelThreshold;
 
     ArcFile(Path arcFileName) throws IOException {
+        this(arcFileName, null, 0);
+    }
+
+    /**
+     * @param arcFileName        the archive
+     * @param inflateExecutor    executor used to inflate the parts of large entries concurrently, or
+     *                           <b><code>null</code></b> to inflate on the calling thread
+     * @param parallelThreshold  minimum uncompressed size of the entries inflated with the executor
+     */
+    ArcFile(Path arcFileName, Executor inflateExecutor, int parallelThreshold) throws IOException {
         // Format of an ARC file
         // 0x08 - 4 bytes = // of files
         // 0x0C - 4 bytes = // of parts
@@ -68,103 +101,134 @@ class ArcFile {
         // 4-byte int = offset in directory structure for filename
 
         this.arcFileName = arcFileName;
+        this.inflateExecutor = inflateExecutor;
+        this.parallelThreshold = parallelThreshold;
+
+        FileChannel arc = FileChannel.open(arcFileName, StandardOpenOption.READ);
+        try {
+            this.records = readToc(arc);
+        } catch (IOException | RuntimeException e) {
+            arc.close();
+            throw e;
+        }
+        this.channel = arc;
+        this.names = List.copyOf(records.keySet());
+        this.namesByType = indexByType(names);
+        logger.log(TRACE, "records hashtable:''{0}''", records.size());
+    }
 
-        try (RandomAccessFileLE arc = new RandomAccessFileLE(arcFileName.toString(), "r")) {
-            //test magic-number("ARC") and size
-            byte[] magicNumber = new byte[3];
-
-            arc.readFully(magicNumber, 0, magicNumber.length);
-            if (Arrays.compare(magicNumber, new byte[]{0x41, 0x52, 0x43}) != 0
-                    || arc.length() < 33) {
-                throw new IOException(String.format("Invalid file '%s' (length=%s)", arcFileName, arc.length()));
+    private static Map<ResourceType, List<String>> indexByType(List<String> names) {
+        Map<ResourceType, List<String>> index = new EnumMap<>(ResourceType.class);
+        for (String name : names) {
+            ResourceType type = ResourceType.of(name);
+            if (type != null) {
+                index.computeIfAbsent(type, t -> new ArrayList<>()).add(name);
             }
+        }
+        index.replaceAll((t, l) -> Collections.unmodifiableList(l));
+        return index;
+    }
 
-            arc.seek(8);
+    // the part table, filenames and entry records are read with a single read and parsed in memory
+    private Map<String, ArcEntry> readToc(FileChannel arc) throws IOException {
+        long length = arc.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        //test magic-number("ARC") and size
+        if (length < 33 || readFully(arc, header, 0) < HEADER_SIZE
+                || header.get(0) != 0x41 || header.get(1) != 0x52 || header.get(2) != 0x43) {
+            throw new IOException(String.format("Invalid file '%s' (length=%s)", arcFileName, length));
+        }
 
-            int entries = arc.readIntLE();
-            int numParts = arc.readIntLE();
+        int entries = header.getInt(8);
+        int numParts = header.getInt(12);
+        int tocOffset = header.getInt(24);
+        if (entries < 0 || numParts < 0 || tocOffset < 0 || length < (tocOffset + 12L)
+                || length - tocOffset < 12L * numParts + 44L * entries || length - tocOffset > Integer.MAX_VALUE) {
+            throw new IOException(
+                    String.format("Invalid file '%s' (length=%s, tocOffset=%s)", arcFileName, length, (tocOffset + 12))
+            );
+        }
+        logger.log(TRACE, "entries:''{0}'' numParts:''{1}'' tocOffset:''{2}''", entries, numParts, tocOffset);
 
-            //skip two bytes
-            arc.seek(arc.getFilePointer() + 8);
+        ByteBuffer toc = ByteBuffer.allocate((int) (length - tocOffset)).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(arc, toc, tocOffset);
 
-            int tocOffset = arc.readIntLE();
-            if (arc.length() < (tocOffset + 12)) {
-                throw new IOException(
-                        String.format("Invalid file '%s' (length=%s, tocOffset=%s)", arcFileName, arc.length(), (tocOffset + 12))
-                );
+        DataBlock[] parts = new DataBlock[numParts];
+        for (int i = 0; i < numParts; i++) {
+            parts[i] = new DataBlock(toc.getInt(i * 12), toc.getInt(i * 12 + 4), toc.getInt(i * 12 + 8));
+        }
+        logger.log(TRACE, "parts table:''{0}''", parts.length);
+
+        //filenames start after the parts, entry records are the last 44 bytes * number of entries
+        int filenamesOffset = 12 * numParts;
+        int entriesOffset = toc.capacity() - 44 * entries;
+
+        // entries are kept in archive order
+        Map<String, ArcEntry> ret = LinkedHashMap.newLinkedHashMap(entries);
+        for (int i = 0, pos = entriesOffset; i < entries; i++, pos += 44) {
+            int storageTypeField = toc.getInt(pos);
+            int entryFileOffset = toc.getInt(pos + 4);
+            int entryCompressedSize = toc.getInt(pos + 8);
+            int entryRealSize = toc.getInt(pos + 12);
+            //skip 3 ints
+            int nParts = toc.getInt(pos + 28);
+            int firstPart = toc.getInt(pos + 32);
+            int filenameLength = toc.getInt(pos + 36);
+            int entryNameOffset = toc.getInt(pos + 40);
+
+            StorageType entryStorageType;
+            if (entryRealSize == entryCompressedSize && storageTypeField == 1) {
+                entryStorageType = StorageType.UNCOMPRESSED;
+            } else {
+                entryStorageType = StorageType.COMPRESSED;
             }
 
-            arc.seek(tocOffset);
-            logger.log(TRACE, "entries:''{0}'' numParts:''{1}'' tocOffset:''{2}''", entries, numParts, tocOffset);
-
-            Map<Integer, DataBlock> parts = new HashMap<>();
-            records = new HashMap<>();
-
-            for (int i = 0; i < numParts; i++) {
-                int partFileOffset = arc.readIntLE();
-                int partCompressedSize = arc.readIntLE();
-                int partRealSize = arc.readIntLE();
-                parts.put(i, new DataBlock(partFileOffset, partCompressedSize, partRealSize));
+            if (filenameLength <= 0) {
+                continue;
             }
-
-            logger.log(TRACE, "parts hashtable:''{0}''", parts.size());
-
-            //filenames
-            long filenamesOffset = arc.getFilePointer();
-
-            //skip filenames, 44 bytes each file data * number of entries
-            arc.seek(arc.length() - (44L * entries));
-
-            for (int i = 0; i < entries; i++) {
-                int storageTypeField = arc.readIntLE();
-                int entryFileOffset = arc.readIntLE();
-                int entryCompressedSize = arc.readIntLE();
-                int entryRealSize = arc.readIntLE();
-
-                StorageType entryStorageType;
-                if (entryRealSize == entryCompressedSize && storageTypeField == 1) {
-                    entryStorageType = StorageType.UNCOMPRESSED;
-                } else {
-                    entryStorageType = StorageType.COMPRESSED;
+            int nameStart = filenamesOffset + entryNameOffset;
+            if (entryNameOffset < 0 || nameStart + (long) filenameLength > entriesOffset) {
+                throw new IOException(String.format("Invalid filename offset %d in '%s'", entryNameOffset, arcFileName));
+            }
+            String path = new String(toc.array(), nameStart, filenameLength, FILENAME_CHARSET);
+            ArcEntry entry = new ArcEntry(normalizeRecordPath(path), path,
+                    entryStorageType, entryFileOffset, entryCompressedSize, entryRealSize);
+            logger.log(TRACE, "record filename found ''{0}''({1}B length) - ''0x{2}''",
+                    entry.getFilename(), filenameLength, Long.toHexString((long) tocOffset + nameStart));
+
+            if (entry.isCompressed()) {
+                if (nParts < 0 || firstPart < 0 || (long) firstPart + nParts > numParts) {
+                    throw new IOException(String.format("Invalid parts for '%s' in '%s'", entry.getFilename(), arcFileName));
                 }
-                //skip 3 ints
-                arc.seek(arc.getFilePointer() + 12);
-                int nParts = arc.readIntLE();
-
-                int firstPart = arc.readIntLE();
-
-                byte[] filenameBytes = new byte[arc.readIntLE()];
-                int entryNameOffset = arc.readIntLE();
-                long prev = arc.getFilePointer();
-                arc.seek(filenamesOffset + entryNameOffset);
-                arc.readFully(filenameBytes, 0, filenameBytes.length);
-                arc.seek(prev);
-
-                if (filenameBytes.length > 0) {
-                    ArcEntry entry = new ArcEntry(normalizeRecordPath(new String(filenameBytes, "CP1252")),
-                            entryStorageType, entryFileOffset, entryCompressedSize, entryRealSize);
-                    logger.log(TRACE, "record filename found ''{0}''({1}B length) - ''0x{2}''",
-                            entry.getFilename(), filenameBytes.length, Long.toHexString(filenamesOffset + entryNameOffset));
-
-                    if (entry.isCompressed()) {
-                        for (int p = 0; p < nParts; p++) {
-                            entry.addPart(p, parts.get(p + firstPart));
-                        }
-                    }
-                    records.put(entry.getFilename(), entry);
+                for (int p = 0; p < nParts; p++) {
+                    entry.addPart(p, parts[p + firstPart]);
                 }
             }
+            ret.put(entry.getFilename(), entry);
         }
-
-        logger.log(TRACE, "records hashtable:''{0}''", records.size());
+        return ret;
     }
 
     public Path getArcFileName() {
         return arcFileName;
     }
 
+    /**
+     * @return unmodifiable list of the entry names, in archive order
+     */
     List<String> listRecords() {
-        return new ArrayList<>(records.keySet());
+        return names;
+    }
+
+    /**
+     * @return unmodifiable list of the entry names of <b><code>type</code></b>, in archive order
+     */
+    List<String> listRecords(ResourceType type) {
+        return namesByType.getOrDefault(type, List.of());
+    }
+
+    boolean contains(String id) {
+        return getEntry(id) != null;
     }
 
     private String normalizeRecordPath(String recordId) {
@@ -174,56 +238,247 @@ class ArcFile {
         return recordId.toUpperCase().replace("/", "\\");
     }
 
-    byte[] getData(String id) {
-        if (id == null) return null;
+    ArcEntry getEntry(String id) {
+        String dataId = normalizeRecordPath(id);
+        return dataId != null ? records.get(dataId) : null;
+    }
 
-        String dataId = id;
-        dataId = normalizeRecordPath(dataId);
+    /**
+     * Reads and decompresses an entry with positional reads on the shared channel, safe to call from multiple threads.
+     *
+     * @param id the entry name
+     * @return the entry data, or <b><code>null</code></b> if the entry doesn't exist
+     * @throws IOException if the archive can't be read, was closed, or the entry data is corrupt
+     */
+    byte[] getData(String id) throws IOException {
+        ArcEntry e = getEntry(id);
+        if (e == null) {
+            return null;
+        }
+        if (e.getStorageType() == StorageType.UNCOMPRESSED) {
+            byte[] data = new byte[e.getRealSize()];
+            readFully(ByteBuffer.wrap(data), e.getFileOffset());
+            return data;
+        }
+        return inflate(e, false);
+    }
+
+    /**
+     * Returns a read-only little-endian buffer with the entry data. Uncompressed entries are a slice of the archive
+     * mapped in memory, without copying. Compressed entries are inflated from the mapping when this method is called,
+     * a buffer can't defer the inflation to its first read.
+     *
+     * @param id the entry name
+     * @return the entry data, or <b><code>null</code></b> if the entry doesn't exist
+     * @throws IOException if the archive can't be mapped, was closed, or the entry data is corrupt
+     */
+    ByteBuffer getBuffer(String id) throws IOException {
+        ArcEntry e = getEntry(id);
+        if (e == null) {
+            return null;
+        }
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        if (e.getStorageType() == StorageType.UNCOMPRESSED) {
+            return mappedSlice(e.getFileOffset(), e.getRealSize()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return ByteBuffer.wrap(inflate(e, true)).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
 
-        if (!records.containsKey(dataId) || dataId == null)
+    /**
+     * Opens a stream reading the entry from the archive on demand, compressed parts are inflated as the stream is read.
+     *
+     * @param id the entry name
+     * @return the stream, or <b><code>null</code></b> if the entry doesn't exist
+     * @throws IOException if the archive was closed
+     */
+    InputStream openStream(String id) throws IOException {
+        ArcEntry e = getEntry(id);
+        if (e == null) {
             return null;
-        ArcEntry e = records.get(dataId);
+        }
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        return new ArcEntryInputStream(this, e);
+    }
+
+    /**
+     * Reads the stored data, or the compressed parts, of an entry without inflating it.
+     */
+    RawEntry readRaw(ArcEntry e) throws IOException {
+        if (e.getStorageType() == StorageType.UNCOMPRESSED) {
+            ByteBuffer data = ByteBuffer.allocate(e.getRealSize());
+            readFully(data, e.getFileOffset());
+            return new RawEntry(e, new ByteBuffer[]{data.flip()});
+        }
+        ByteBuffer[] parts = new ByteBuffer[e.getParts().size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = partInput(e.getParts().get(i), false);
+        }
+        return new RawEntry(e, parts);
+    }
+
+    /**
+     * Inflates an entry read with {@link #readRaw(ArcEntry)}.
+     */
+    byte[] inflate(RawEntry raw) throws IOException {
+        ArcEntry e = raw.entry();
+        if (e.getStorageType() == StorageType.UNCOMPRESSED) {
+            return raw.parts()[0].array();
+        }
         byte[] data = new byte[e.getRealSize()];
-        try (RandomAccessFileLE arc = new RandomAccessFileLE(arcFileName.toString(), "r")) {
-            if (e.getStorageType() == StorageType.UNCOMPRESSED) {
-                arc.get(e.getFileOffset(), data);
-            } else {
-                int pos = 0;
-                for (DataBlock p : e.getParts()) {
-                    byte[] bufPart = decompressPart(p);
-                    logger.log(TRACE, "reading... bufsz:''{0}'' pos:''{1}'' partcsz:''{2}''",
-                            data.length, pos, p.realSize());
-                    System.arraycopy(bufPart, 0, data, pos, bufPart.length);
-                    pos += bufPart.length;
+        int pos = 0;
+        for (int i = 0; i < raw.parts().length; i++) {
+            DataBlock p = e.getParts().get(i);
+            inflatePart(p, raw.parts()[i], data, pos);
+            pos += p.realSize();
+        }
+        return data;
+    }
+
+    private byte[] inflate(ArcEntry e, boolean mapped) throws IOException {
+        byte[] data = new byte[e.getRealSize()];
+        if (inflateExecutor != null && e.getParts().size() > 1 && e.getRealSize() >= parallelThreshold) {
+            inflateParallel(e, mapped, data);
+            return data;
+        }
+        int pos = 0;
+        for (DataBlock p : e.getParts()) {
+            logger.log(TRACE, "reading... bufsz:''{0}'' pos:''{1}'' partcsz:''{2}''",
+                    data.length, pos, p.realSize());
+            decompressPart(p, mapped, data, pos);
+            pos += p.realSize();
+        }
+        return data;
+    }
+
+    // parts are independent deflate streams with known sizes, each one is inflated into its own range of the output
+    private void inflateParallel(ArcEntry e, boolean mapped, byte[] data) throws IOException {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(e.getParts().size());
+        int pos = 0;
+        for (DataBlock p : e.getParts()) {
+            int partOffset = pos;
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    decompressPart(p, mapped, data, partOffset);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
                 }
+            }, inflateExecutor));
+            pos += p.realSize();
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
             }
-        } catch (IOException ex) {
-            logger.log(ERROR, "Error", ex);
+            throw new IOException(String.format("Error inflating '%s' from '%s'", e.getFilename(), arcFileName), ex.getCause());
         }
-        return data;
     }
 
-    private byte[] decompressPart(DataBlock part) {
+    private void decompressPart(DataBlock part, boolean mapped, byte[] output, int outputOffset) throws IOException {
+        inflatePart(part, partInput(part, mapped), output, outputOffset);
+    }
+
+    // each part is a zlib stream, skip the 2 bytes header and return the raw deflate data
+    private ByteBuffer partInput(DataBlock part, boolean mapped) throws IOException {
         logger.log(TRACE, "reading ''{0}'' bytes part from offset ''{1}''",
                 part.compressedSize(), part.fileOffset());
 
-        byte[] buffer = new byte[part.realSize()];
+        if (part.compressedSize() < 2) {
+            throw new IOException(String.format("Invalid part at offset %d in '%s'", part.fileOffset(), arcFileName));
+        }
+        if (mapped) {
+            return mappedSlice(part.fileOffset() + 2, part.compressedSize() - 2);
+        }
+        ByteBuffer input = ByteBuffer.allocate(part.compressedSize() - 2);
+        readFully(input, part.fileOffset() + 2L);
+        return input.flip();
+    }
+
+    private void inflatePart(DataBlock part, ByteBuffer input, byte[] output, int outputOffset) throws IOException {
+        if (outputOffset + part.realSize() > output.length) {
+            throw new IOException(String.format("Invalid part at offset %d in '%s'", part.fileOffset(), arcFileName));
+        }
         Inflater inflater = new Inflater(true);
-        try (RandomAccessFileLE arc = new RandomAccessFileLE(arcFileName.toString(), "r")) {
-            try {
-                byte[] input = new byte[part.compressedSize()];
-                arc.get(part.fileOffset() + 2, input);
-                inflater.setInput(input);
-                inflater.inflate(buffer);
-                inflater.end();
-
-                logger.log(TRACE, "buffer size ''{0}''", buffer.length);
-            } catch (DataFormatException e) {
-                logger.log(ERROR, "Error", e);
+        try {
+            inflater.setInput(input);
+            int pos = outputOffset;
+            int end = outputOffset + part.realSize();
+            while (pos < end && !inflater.finished()) {
+                int n = inflater.inflate(output, pos, end - pos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                pos += n;
             }
-        } catch (IOException ex) {
-            logger.log(ERROR, ex);
+            if (pos != end) {
+                throw new IOException(String.format("Truncated part at offset %d in '%s'", part.fileOffset(), arcFileName));
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(String.format("Corrupt part at offset %d in '%s'", part.fileOffset(), arcFileName), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private ByteBuffer mappedSlice(int offset, int length) throws IOException {
+        MappedByteBuffer m = mapping();
+        if (offset < 0 || length < 0 || (long) offset + length > m.capacity()) {
+            throw new EOFException(String.format("Unexpected end of file '%s' at offset %d", arcFileName, offset));
+        }
+        return m.slice(offset, length);
+    }
+
+    // the archive is mapped on first use, only by callers asking for buffers
+    private MappedByteBuffer mapping() throws IOException {
+        MappedByteBuffer m = mapping;
+        if (m == null) {
+            synchronized (this) {
+                m = mapping;
+                if (m == null) {
+                    m = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    mapping = m;
+                }
+            }
+        }
+        return m;
+    }
+
+    int read(ByteBuffer dst, long position) throws IOException {
+        return channel.read(dst, position);
+    }
+
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        int expected = dst.remaining();
+        if (readFully(channel, dst, position) < expected) {
+            throw new EOFException(String.format("Unexpected end of file '%s' at offset %d", arcFileName, position));
         }
-        return buffer;
+    }
+
+    // reads until dst is full or the end of file, returns the number of bytes read
+    private static int readFully(FileChannel ch, ByteBuffer dst, long position) throws IOException {
+        int total = 0;
+        while (dst.hasRemaining()) {
+            int n = ch.read(dst, position + total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // buffers already returned stay valid, the mapping is released when they are collected
+        mapping = null;
+        channel.close();
+    }
+
+    record RawEntry(ArcEntry entry, ByteBuffer[] parts) {
     }
 }
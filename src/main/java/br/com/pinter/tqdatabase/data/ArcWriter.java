@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabase.data;
+
+import br.com.pinter.tqdatabase.models.StorageType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+/**
+ * Writes ARC archives in the format read by {@link ResourceReader}. Compressed entries are split in parts, and the
+ * parts are deflated in parallel while the data already compressed is written, in order, in a single pass. The parts
+ * table, filenames and entry records are written when the writer is closed.
+ * <p>
+ * Entries are added by a single thread.
+ */
+public class ArcWriter implements AutoCloseable {
+    private static final System.Logger logger = System.getLogger(ArcWriter.class.getName());
+    private static final int HEADER_SIZE = 28;
+    private static final int ENTRY_RECORD_SIZE = 44;
+    private static final int DEFAULT_PART_SIZE = 256 * 1024;
+    private static final Charset FILENAME_CHARSET = Charset.forName("CP1252");
+    // 100ns intervals between 1601-01-01 and 1970-01-01, for the FILETIME of the entries
+    private static final long FILETIME_EPOCH_OFFSET = 116444736000000000L;
+    private final Path fileName;
+    private final FileChannel channel;
+    private final Executor executor;
+    private final int partSize;
+    private final int compressionLevel;
+    private final int maxPendingParts;
+    private final Deque<PendingEntry> pending = new ArrayDeque<>();
+    private final List<DataBlock> parts = new ArrayList<>();
+    private final List<EntryRecord> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private int pendingParts;
+    private long position = HEADER_SIZE;
+    private boolean closed;
+    private IOException failure;
+
+    private ArcWriter(Builder builder) throws IOException {
+        this.fileName = builder.fileName;
+        this.executor = builder.executor;
+        this.partSize = builder.partSize;
+        this.compressionLevel = builder.compressionLevel;
+        this.maxPendingParts = builder.maxPendingParts;
+        this.channel = FileChannel.open(fileName, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public static Builder builder(Path fileName) {
+        return new Builder(fileName);
+    }
+
+    /**
+     * Adds a compressed entry.
+     *
+     * @param name The entry name, e.g. <code>items/gear.tex</code>
+     * @param data The entry data
+     * @throws IOException if previously added data can't be written
+     */
+    public void add(String name, byte[] data) throws IOException {
+        add(name, data, StorageType.COMPRESSED);
+    }
+
+    /**
+     * Adds an entry. Blocks while too many parts are waiting to be written.
+     *
+     * @param name        The entry name, e.g. <code>fonts/tahoma.fnt</code>
+     * @param data        The entry data, must not be modified until the writer is closed
+     * @param storageType If the entry is stored compressed or uncompressed
+     * @throws IllegalArgumentException if an entry with the same name was already added
+     * @throws IOException              if previously added data can't be written
+     */
+    public void add(String name, byte[] data, StorageType storageType) throws IOException {
+        Objects.requireNonNull(data);
+        checkState();
+        if (name == null || name.isEmpty() || !names.add(name.toUpperCase(Locale.ROOT).replace("/", "\\"))) {
+            throw new IllegalArgumentException("Invalid or duplicate entry name '" + name + "'");
+        }
+
+        Adler32 hash = new Adler32();
+        hash.update(data);
+        List<CompletableFuture<byte[]>> compressedParts = new ArrayList<>();
+        if (storageType == StorageType.COMPRESSED) {
+            for (int offset = 0; offset < data.length; offset += partSize) {
+                int from = offset;
+                int length = Math.min(partSize, data.length - offset);
+                compressedParts.add(CompletableFuture.supplyAsync(() -> deflate(data, from, length), executor));
+            }
+        }
+        pending.add(new PendingEntry(name.getBytes(FILENAME_CHARSET), storageType, data, (int) hash.getValue(),
+                compressedParts));
+        pendingParts += Math.max(1, compressedParts.size());
+
+        while (pendingParts > maxPendingParts) {
+            writeEntry(pending.remove());
+        }
+    }
+
+    private void checkState() throws IOException {
+        if (failure != null) {
+            throw new IOException("Archive '" + fileName + "' is incomplete after a previous error", failure);
+        }
+        if (closed) {
+            throw new IOException("Archive '" + fileName + "' is closed");
+        }
+    }
+
+    private byte[] deflate(byte[] data, int offset, int length) {
+        // each part is a complete zlib stream
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            byte[] out = new byte[length + length / 1000 + 64];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                size += deflater.deflate(out, size, out.length - size);
+            }
+            return Arrays.copyOf(out, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeEntry(PendingEntry e) throws IOException {
+        try {
+            writeEntryData(e);
+        } catch (IOException ex) {
+            // a missing entry would shift the entries written after it, the archive can't be completed
+            failure = ex;
+            throw ex;
+        }
+    }
+
+    private void writeEntryData(PendingEntry e) throws IOException {
+        int firstPart = parts.size();
+        long entryOffset = position;
+        int compressedSize = 0;
+        if (e.storageType() == StorageType.COMPRESSED) {
+            int realOffset = 0;
+            for (CompletableFuture<byte[]> future : e.compressedParts()) {
+                byte[] part = join(future);
+                int realSize = Math.min(partSize, e.data().length - realOffset);
+                parts.add(new DataBlock(checkOffset(position), part.length, realSize));
+                write(ByteBuffer.wrap(part));
+                compressedSize += part.length;
+                realOffset += realSize;
+            }
+        } else {
+            parts.add(new DataBlock(checkOffset(position), e.data().length, e.data().length));
+            write(ByteBuffer.wrap(e.data()));
+            compressedSize = e.data().length;
+        }
+        pendingParts -= Math.max(1, e.compressedParts().size());
+        entries.add(new EntryRecord(e.name(), e.storageType(), checkOffset(entryOffset), compressedSize,
+                e.data().length, e.hash(), firstPart, parts.size() - firstPart));
+    }
+
+    private byte[] join(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            throw new IOException("Error compressing entry for '" + fileName + "'", ex.getCause());
+        }
+    }
+
+    private int checkOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Archive '" + fileName + "' exceeds the maximum size");
+        }
+        return (int) offset;
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private void writeToc() throws IOException {
+        int tocOffset = checkOffset(position);
+        long filetime = System.currentTimeMillis() * 10000 + FILETIME_EPOCH_OFFSET;
+
+        ByteBuffer partsTable = ByteBuffer.allocate(12 * parts.size()).order(ByteOrder.LITTLE_ENDIAN);
+        for (DataBlock p : parts) {
+            partsTable.putInt(p.fileOffset()).putInt(p.compressedSize()).putInt(p.realSize());
+        }
+        write(partsTable.flip());
+
+        int filenamesSize = entries.stream().mapToInt(e -> e.name().length + 1).sum();
+        ByteBuffer filenames = ByteBuffer.allocate(filenamesSize);
+        ByteBuffer records = ByteBuffer.allocate(ENTRY_RECORD_SIZE * entries.size()).order(ByteOrder.LITTLE_ENDIAN);
+        for (EntryRecord e : entries) {
+            int nameOffset = filenames.position();
+            filenames.put(e.name()).put((byte) 0);
+            records.putInt(e.storageType() == StorageType.COMPRESSED ? 3 : 1)
+                    .putInt(e.offset()).putInt(e.compressedSize()).putInt(e.realSize())
+                    .putInt(e.hash()).putLong(filetime)
+                    .putInt(e.numParts()).putInt(e.firstPart())
+                    .putInt(e.name().length).putInt(nameOffset);
+        }
+        write(filenames.flip());
+        write(records.flip());
+        checkOffset(position);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{0x41, 0x52, 0x43, 0}).putInt(3).putInt(entries.size()).putInt(parts.size())
+                .putInt(partsTable.capacity()).putInt(filenamesSize).putInt(tocOffset).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Writes the remaining entries and the table of contents, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (failure != null) {
+                throw new IOException("Archive '" + fileName + "' is incomplete after a previous error", failure);
+            }
+            while (!pending.isEmpty()) {
+                writeEntry(pending.remove());
+            }
+            writeToc();
+            logger.log(DEBUG, "Archive ''{0}'' written, ''{1}'' entries, ''{2}'' parts", fileName, entries.size(), parts.size());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private record PendingEntry(byte[] name, StorageType storageType, byte[] data, int hash,
+                                List<CompletableFuture<byte[]>> compressedParts) {
+    }
+
+    private record EntryRecord(byte[] name, StorageType storageType, int offset, int compressedSize, int realSize,
+                               int hash, int firstPart, int numParts) {
+    }
+
+    public static class Builder {
+        private final Path fileName;
+        private Executor executor = ForkJoinPool.commonPool();
+        private int partSize = DEFAULT_PART_SIZE;
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private int maxPendingParts = Runtime.getRuntime().availableProcessors() * 4;
+
+        public Builder(Path fileName) {
+            this.fileName = Objects.requireNonNull(fileName);
+        }
+
+        /**
+         * @param executor The executor compressing the parts, {@link ForkJoinPool#commonPool()} by default
+         * @return this builder
+         */
+        public Builder withExecutor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor);
+            return this;
+        }
+
+        /**
+         * @param partSize Uncompressed size of the parts compressed entries are split in, 256KiB by default
+         * @return this builder
+         */
+        public Builder withPartSize(int partSize) {
+            if (partSize < 1) {
+                throw new IllegalArgumentException("partSize must be positive");
+            }
+            this.partSize = partSize;
+            return this;
+        }
+
+        /**
+         * @param compressionLevel The {@link Deflater} compression level
+         * @return this builder
+         */
+        public Builder withCompressionLevel(int compressionLevel) {
+            if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("invalid compression level: " + compressionLevel);
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * @param maxPendingParts Maximum number of parts compressed or waiting to be written before
+         *                        {@link ArcWriter#add} blocks. Four times the number of processors by default.
+         * @return this builder
+         */
+        public Builder withMaxPendingParts(int maxPendingParts) {
+            if (maxPendingParts < 1) {
+                throw new IllegalArgumentException("maxPendingParts must be positive");
+            }
+            this.maxPendingParts = maxPendingParts;
+            return this;
+        }
+
+        public ArcWriter build() throws IOException {
+            return new ArcWriter(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabase.data;
+
+/**
+ * Metadata of a record stored in an ARZ file, as read from the records table.
+ *
+ * @param id             Normalized record path
+ * @param stringIndex    Index of the record path in the string table
+ * @param recordType     The record type
+ * @param offset         Absolute offset of the compressed record data
+ * @param compressedSize Size of the compressed record data
+ */
+record ArzEntry(String id, int stringIndex, String recordType, int offset, int compressedSize) {
+}
@@ -20,34 +20,65 @@
 
 package br.com.pinter.tqdatabase.data;
 
-import br.com.pinter.tqdatabase.cache.CacheDbRecord;
 import br.com.pinter.tqdatabase.models.DbRecord;
 import br.com.pinter.tqdatabase.models.DbVariable;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.CRC32C;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
-class ArzFile {
+class ArzFile implements AutoCloseable {
     private static final System.Logger logger = System.getLogger(ArzFile.class.getName());
 
-    private final ByteBuffer arzBuffer;
-    private String[] stringsTable;
-    private Map<String, DbRecord> recordsMetadata;
+    private static final Charset CHARSET = Charset.forName("CP1252");
+    // adler32 of the file, the string table, the record data and the records table
+    private static final int FOOTER_SIZE = 16;
+    // Inflater and output buffer are reused by each thread decoding records
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<byte[]> DECOMPRESS_BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    // released by close, a mapping is unmapped when the buffer is garbage collected
+    private ByteBuffer arzBuffer;
+    private final boolean internStrings;
+    // offset of each string (length prefix) in arzBuffer, strings are decoded on first access
+    private final int[] stringsOffsets;
+    private final String[] stringsTable;
+    // strings used as variable values, trimmed and without line breaks, shared by all decoded records
+    private final String[] valuesTable;
+    private final Map<String, ArzEntry> recordsMetadata;
     private final String fileName;
+    private final String identity;
 
     ArzFile(String fileName) throws IOException {
+        this(fileName, false, false, null);
+    }
+
+    /**
+     * @param fileName     Path of the database.arz file
+     * @param memoryMapped If <b><code>true</code></b>, the file is mapped read-only with {@link FileChannel#map} and
+     *                     records are decoded straight from the mapping, instead of copying the whole file to the heap.
+     * @param internStrings If <b><code>true</code></b>, strings from the string table are interned when decoded.
+     * @param indexFile    Sidecar file used to store the parsed tables, see {@link ArzIndex}. The index is read from
+     *                     this file when valid, or written to it after parsing the tables. Disabled if
+     *                     <b><code>null</code></b>.
+     * @throws IOException if the file can't be read
+     */
+    ArzFile(String fileName, boolean memoryMapped, boolean internStrings, Path indexFile) throws IOException {
         this.fileName = fileName;
+        this.internStrings = internStrings;
 
         // ARZ header file format
         // 0x000000 int32
@@ -57,14 +88,25 @@ class ArzFile {
         // 0x000010 int32 start of string table
         // 0x000014 int32 size in bytes of string table
 
-        File file = new File(fileName);
-        arzBuffer = ByteBuffer.allocate((Math.toIntExact(file.length()))).order(ByteOrder.LITTLE_ENDIAN);
-        try (FileInputStream in = new FileInputStream(file)) {
-            in.getChannel().read(arzBuffer);
+        Path file = Path.of(fileName);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (memoryMapped) {
+                // the mapping stays valid after the channel is closed
+                arzBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                arzBuffer = ByteBuffer.allocate(Math.toIntExact(channel.size())).order(ByteOrder.LITTLE_ENDIAN);
+                while (arzBuffer.hasRemaining() && channel.read(arzBuffer) != -1) {
+                    logger.log(System.Logger.Level.TRACE, "reading arz file, ''{0}'' bytes remaining", arzBuffer.remaining());
+                }
+                arzBuffer.rewind();
+            }
         }
-        arzBuffer.rewind();
 
-        logger.log(System.Logger.Level.DEBUG, "Loaded arz file (''{0}''), ''{1}'' bytes.", file.getName(), arzBuffer.capacity());
+        identity = String.format("%s:%d:%d", file.toAbsolutePath().normalize(), arzBuffer.capacity(),
+                Files.getLastModifiedTime(file).toMillis());
+
+        logger.log(System.Logger.Level.DEBUG, "Loaded arz file (''{0}''), ''{1}'' bytes, mapped=''{2}''.",
+                file.getFileName(), arzBuffer.capacity(), memoryMapped);
 
         int[] header = new int[6];
 
@@ -77,8 +119,36 @@ class ArzFile {
         int recordsTableCount = header[3];
         int stringsTableStart = header[4];
 
-        readStringsTable(stringsTableStart);
-        readRecordsTable(recordsTableStart, recordsTableCount);
+        ArzIndex index = null;
+        ArzIndex.Key indexKey = null;
+        if (indexFile != null) {
+            indexKey = indexKey(file);
+            index = ArzIndex.read(indexFile, indexKey);
+        }
+
+        stringsOffsets = index != null ? index.getStringsOffsets() : readStringsTable(stringsTableStart);
+        stringsTable = new String[stringsOffsets.length];
+        valuesTable = new String[stringsOffsets.length];
+        recordsMetadata = index != null ? index.getRecords() : readRecordsTable(recordsTableStart, recordsTableCount);
+
+        if (index == null && indexFile != null) {
+            try {
+                new ArzIndex(stringsOffsets, recordsMetadata).write(indexFile, indexKey);
+            } catch (IOException e) {
+                logger.log(System.Logger.Level.WARNING, "Unable to write index " + indexFile, e);
+            }
+        }
+    }
+
+    // checksum of the header and the footer, the footer has the adler32 of the whole file and of each table, so the
+    // contents are validated without reading them
+    private ArzIndex.Key indexKey(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(arzBuffer.slice(0, 24));
+        if (arzBuffer.capacity() >= 24 + FOOTER_SIZE) {
+            crc.update(arzBuffer.slice(arzBuffer.capacity() - FOOTER_SIZE, FOOTER_SIZE));
+        }
+        return new ArzIndex.Key(arzBuffer.capacity(), Files.getLastModifiedTime(file).toMillis(), crc.getValue());
     }
 
     @Override
@@ -86,11 +156,6 @@ class ArzFile {
         return fileName;
     }
 
-    void invalidateCacheEntry(String recordId) {
-        recordId = DbRecord.normalizeRecordPath(recordId);
-        CacheDbRecord.getInstance().remove(recordId);
-    }
-
     DbRecord getRecord(String recordId) {
         recordId = DbRecord.normalizeRecordPath(recordId);
         if (exists(recordId)) {
@@ -109,50 +174,86 @@ class ArzFile {
                 && !recordId.isEmpty()
                 && recordsMetadata.containsKey(recordId)
                 && recordsMetadata.get(recordId) != null
-                && recordsMetadata.get(recordId).getOffset() > 0);
+                && recordsMetadata.get(recordId).offset() > 0);
     }
 
-    // loads all strings and stores in strings array
-    private void readStringsTable(int start) {
+    // indexes the offset of all strings, the strings are decoded by getString when needed
+    private int[] readStringsTable(int start) {
         arzBuffer.position(start);
         int numStrings = arzBuffer.getInt();
-        stringsTable = new String[numStrings];
+        int[] offsets = new int[numStrings];
 
         logger.log(System.Logger.Level.DEBUG, "string table at ''{0}'' numstrings=''{1}''\n", String.format("%X", start), numStrings);
 
         for (int i = 0; i < numStrings; i++) {
-            stringsTable[i] = readString();
-            logger.log(System.Logger.Level.TRACE, "readStringsTable: ''{0}'' ''{1}''\n", i, stringsTable[i]);
+            int offset = arzBuffer.position();
+            offsets[i] = offset;
+            arzBuffer.position(offset + 4 + arzBuffer.getInt(offset));
+        }
+        return offsets;
+    }
+
+    // returns a string from the string table, decoding it on first access
+    String getString(int index) {
+        // concurrent decodes of the same index are harmless, both threads produce equal strings
+        String ret = stringsTable[index];
+        if (ret == null) {
+            ret = decodeString(stringsOffsets[index]);
+            if (internStrings) {
+                ret = ret.intern();
+            }
+            stringsTable[index] = ret;
+            logger.log(System.Logger.Level.TRACE, "getString: ''{0}'' ''{1}''\n", index, ret);
         }
+        return ret;
+    }
+
+    // returns a string from the string table in the form used by variable values
+    private String getValueString(int index) {
+        String ret = valuesTable[index];
+        if (ret == null) {
+            ret = getString(index).trim();
+            if (ret.indexOf('\r') >= 0 || ret.indexOf('\n') >= 0) {
+                ret = ret.replaceAll("[\r\n]", "");
+            }
+            if (internStrings) {
+                ret = ret.intern();
+            }
+            valuesTable[index] = ret;
+        }
+        return ret;
+    }
+
+    private String decodeString(int offset) {
+        int stringLen = arzBuffer.getInt(offset);
+        byte[] data = new byte[stringLen];
+        arzBuffer.get(offset + 4, data, 0, stringLen);
+        return new String(data, CHARSET);
     }
 
-    // loads all records metadata
-    private void readRecordsTable(int start, int count) {
-        recordsMetadata = new HashMap<>();
+    // loads all records metadata, the returned index is read-only
+    private Map<String, ArzEntry> readRecordsTable(int start, int count) {
+        Map<String, ArzEntry> records = new HashMap<>();
+        // few distinct record types are shared by all records
+        Map<String, String> recordTypes = new HashMap<>();
         logger.log(System.Logger.Level.DEBUG, "recordsMetadata table at ''{0}'' numrecords=''{1}''\n", String.format("%X", start), count);
         arzBuffer.position(start);
         for (int i = 0; i < count; i++) {
-            String recordId = recordMetadataGet();
-            DbRecord r = recordsMetadata.get(recordId);
-            logger.log(System.Logger.Level.TRACE, "readRecordsTable: ''{0}'' ''{1}'' ''{2}'' ''{3}''\n", r.getStringIndex(), stringsTable[r.getStringIndex()], r.getOffset(), recordId);
+            ArzEntry r = recordMetadataGet(recordTypes);
+            records.put(r.id(), r);
+            logger.log(System.Logger.Level.TRACE, "readRecordsTable: ''{0}'' ''{1}'' ''{2}'' ''{3}''\n", r.stringIndex(), getString(r.stringIndex()), r.offset(), r.id());
         }
+        return Collections.unmodifiableMap(records);
     }
 
     private String readString() {
-        String ret = null;
-        int stringLen = arzBuffer.getInt();
-        byte[] data = new byte[stringLen];
-        arzBuffer.get(data, 0, stringLen);
-        try {
-            ret = new String(data, "CP1252");
-        } catch (UnsupportedEncodingException e) {
-            logger.log(System.Logger.Level.ERROR, e);
-        }
+        String ret = decodeString(arzBuffer.position());
+        arzBuffer.position(arzBuffer.position() + 4 + arzBuffer.getInt(arzBuffer.position()));
         return ret;
     }
 
-    // loads a single record metadata and store in records hashtable, returns the id
-    private String recordMetadataGet() {
+    // loads a single record metadata
+    private ArzEntry recordMetadataGet(Map<String, String> recordTypes) {
         // Record Entry Format
         // 0x0000 int32 stringEntryID (dbr filename)
         // 0x0004 int32 string length
@@ -163,25 +264,20 @@ class ArzFile {
         // 0x00?? int32 timestamp?
 
         int idStringIndex = arzBuffer.getInt();
-        String recordType = readString();
+        String recordType = recordTypes.computeIfAbsent(readString(), t -> t);
         int offset = arzBuffer.getInt();
+        int compressedSize = arzBuffer.getInt();
 
-        //skips compressed size(32bit int) and 2 timestamps (32bit int each)
-        arzBuffer.position(arzBuffer.position() + 12);
+        //skips 2 timestamps (32bit int each)
+        arzBuffer.position(arzBuffer.position() + 8);
 
         logger.log(System.Logger.Level.TRACE, "recordMetadataGet: ''{0}'' ''{1}'' ''{2}''\n", idStringIndex, recordType, offset);
 
-        DbRecord r = new DbRecord();
-        r.setId(DbRecord.normalizeRecordPath(stringsTable[idStringIndex]));
-        r.setStringIndex(idStringIndex);
-        r.setRecordType(recordType);
-        r.setOffset(offset + 24);
-
-        recordsMetadata.put(r.getId(), r);
-        return r.getId();
+        return new ArzEntry(DbRecord.normalizeRecordPath(getString(idStringIndex)), idStringIndex, recordType,
+                offset + 24, compressedSize);
     }
 
-    // returns all variables and values from a single record
+    // returns a new record with all variables and values, safe to call from multiple threads
     private DbRecord recordDecode(String recordId) throws IOException {
         // 0x00 int16 specifies data type:
         //      0x0000 = int - data will be an int32
@@ -197,91 +293,168 @@ class ArzFile {
             throw new IOException(String.format("Record not found '%s'", id));
         }
 
-        byte[] data = recordDecompress(id);
-        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buffer = recordDecompress(id);
+        int dataLength = buffer.remaining();
 
-        if ((data.length % 4) != 0) {
+        if ((dataLength % 4) != 0) {
             //data length not multiple of 4
             throw new IllegalStateException("corrupt data found while decoding record");
         }
-        DbRecord record = recordsMetadata.get(id);
+        ArzEntry entry = recordsMetadata.get(id);
+        Map<String, DbVariable> variables = new LinkedHashMap<>();
 
         int readBytes = 0;
-        for (int i = 0; i < ((data.length / 4) - readBytes); ) {
+        for (int i = 0; i < ((dataLength / 4) - readBytes); ) {
             short dataType = buffer.getShort();
             short valCount = buffer.getShort();
             int variableId = buffer.getInt();
-            String variableName = stringsTable[variableId];
+            String variableName = getString(variableId);
             logger.log(System.Logger.Level.TRACE, "recordDecode: ''{0}'' ''{1}'' ''{2}'' ''{3}''\n", variableName, dataType, valCount, variableId);
 
             if (dataType < 0 || dataType > 4 || variableName == null || variableName.isEmpty() || valCount < 0) {
                 throw new IllegalStateException("Error parsing record " + id);
             }
 
-            DbVariable v = new DbVariable();
-            v.setVariableName(variableName);
-            v.setType(DbVariable.Type.valueOf(dataType));
-
-            for (int j = 0; j < valCount; j++) {
-                //integer=0 int32
-                //float=1 float
-                //string=2 string
-                //boolean=3 int32
-                //unknown=4 int32
-                if (v.getType() == DbVariable.Type.FLOAT) {
-                    float val = buffer.getFloat();
-                    v.addValue(val);
-                } else if (v.getType() == DbVariable.Type.STRING) {
-                    int stringId = buffer.getInt();
-                    String val = stringsTable[stringId];
-                    val = val.trim().replaceAll("[\r\n]", "");
-                    v.addValue(val);
-                } else if (v.getType() == DbVariable.Type.BOOLEAN) {
-                    boolean val = buffer.getInt() == 1;
-                    v.addValue(val);
-                } else {
-                    //0 and 4
-                    int val = buffer.getInt();
-                    v.addValue(val);
+            //integer=0 int32
+            //float=1 float
+            //string=2 string
+            //boolean=3 int32
+            //unknown=4 int32
+            DbVariable.Type type = DbVariable.Type.valueOf(dataType);
+            DbVariable v;
+            if (type == DbVariable.Type.FLOAT) {
+                float[] values = new float[valCount];
+                for (int j = 0; j < valCount; j++) {
+                    values[j] = buffer.getFloat();
                 }
-
+                v = DbVariable.ofFloat(variableName, values);
+            } else if (type == DbVariable.Type.STRING) {
+                String[] values = new String[valCount];
+                for (int j = 0; j < valCount; j++) {
+                    values[j] = getValueString(buffer.getInt());
+                }
+                v = DbVariable.ofString(variableName, values);
+            } else {
+                //0, 3 and 4
+                int[] values = new int[valCount];
+                for (int j = 0; j < valCount; j++) {
+                    values[j] = buffer.getInt();
+                }
+                v = DbVariable.of(variableName, type, values);
             }
-            record.getVariables().put(v.getVariableName(), v);
+            variables.put(v.getVariableName(), v);
 
             //skip 'dataType' + value size
             readBytes += (2 + valCount);
         }
 
-        return record;
+        return new DbRecord(entry.id(), entry.stringIndex(), entry.recordType(), entry.offset(), variables);
     }
 
-    //decompress a raw deflate(rfc1951) stream (a single record)
-    private byte[] recordDecompress(String id) {
-        DbRecord r = recordsMetadata.get(id);
-        logger.log(System.Logger.Level.TRACE, "reading (''{0}'') from offset ''{1}'' type ''{2}'' (pos ''{3}'')\n", id, String.format("%X", r.getOffset()), r.getRecordType(), String.format("%X", arzBuffer.position()));
-
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        ByteArrayInputStream input = new ByteArrayInputStream(arzBuffer.array(), r.getOffset() + 2, arzBuffer.limit());
-
+    //decompress a raw deflate(rfc1951) stream (a single record), the returned buffer is only valid until the
+    //next call from the same thread
+    private ByteBuffer recordDecompress(String id) throws IOException {
+        ArzEntry r = recordsMetadata.get(id);
+        logger.log(System.Logger.Level.TRACE, "reading (''{0}'') from offset ''{1}'' type ''{2}'' size ''{3}''\n", id, String.format("%X", r.offset()), r.recordType(), r.compressedSize());
+
+        // skip the 2 bytes zlib header, the slice doesn't touch the shared buffer position
+        int inputLength = r.compressedSize() > 2
+                ? Math.min(r.compressedSize(), arzBuffer.limit() - r.offset()) - 2
+                : arzBuffer.limit() - r.offset() - 2;
+        ByteBuffer input = arzBuffer.slice(r.offset() + 2, inputLength);
+
+        Inflater inflater = INFLATER.get();
+        byte[] buffer = DECOMPRESS_BUFFER.get();
+        if (buffer.length < r.compressedSize() * 4) {
+            buffer = new byte[r.compressedSize() * 4];
+        }
+        int size = 0;
         try {
-            InflaterInputStream inflaterInputStream = new InflaterInputStream(input, new Inflater(true), 512);
+            inflater.setInput(input);
+            while (!inflater.finished()) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int len = inflater.inflate(buffer, size, buffer.length - size);
+                if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException(String.format("Truncated data found while decompressing record '%s'", id));
+                }
+                size += len;
+            }
+            logger.log(System.Logger.Level.TRACE, "buffer size ''{0}''", size);
+        } catch (DataFormatException e) {
+            throw new IOException(String.format("Corrupt data found while decompressing record '%s'", id), e);
+        } finally {
+            inflater.reset();
+            DECOMPRESS_BUFFER.set(buffer);
+        }
+
+        return ByteBuffer.wrap(buffer, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
 
-            for (int b; (b = inflaterInputStream.read()) != -1; ) {
-                buffer.write(b);
+    /**
+     * Returns the string table indices referenced by the record: the variable names and the string values.
+     *
+     * @param entry the record
+     * @return the indices, in the order found, with duplicates
+     * @throws IOException if the record data is corrupt
+     */
+    int[] getStringReferences(ArzEntry entry) throws IOException {
+        ByteBuffer buffer = recordDecompress(entry.id());
+        int[] ret = new int[buffer.remaining() / 8];
+        int count = 0;
+        while (buffer.remaining() >= 8) {
+            short dataType = buffer.getShort();
+            int valCount = buffer.getShort() & 0xffff;
+            ret[count++] = buffer.getInt();
+            if (buffer.remaining() < 4 * valCount) {
+                throw new IOException("Corrupt data found in record " + entry.id());
+            }
+            if (dataType == DbVariable.Type.STRING.getValue()) {
+                if (count + valCount > ret.length) {
+                    ret = Arrays.copyOf(ret, count + valCount + ret.length);
+                }
+                for (int j = 0; j < valCount; j++) {
+                    ret[count++] = buffer.getInt();
+                }
+            } else {
+                buffer.position(buffer.position() + 4 * valCount);
             }
-            logger.log(System.Logger.Level.TRACE, "buffer size ", buffer.size());
-        } catch (IOException e) {
-            logger.log(System.Logger.Level.ERROR, e);
         }
+        return Arrays.copyOf(ret, count);
+    }
 
-        return buffer.toByteArray();
+    int getStringCount() {
+        return stringsOffsets.length;
+    }
+
+    /**
+     * @return the compressed data of the record, as stored in the file
+     */
+    ByteBuffer getRecordData(ArzEntry entry) {
+        return arzBuffer.slice(entry.offset(), entry.compressedSize()).order(ByteOrder.LITTLE_ENDIAN);
     }
 
     public Path getFileName() {
         return Path.of(fileName);
     }
 
-    public Map<String, DbRecord> getRecordsMetadata() {
+    /**
+     * @return a string identifying this file by absolute path, size and modification time
+     */
+    String getIdentity() {
+        return identity;
+    }
+
+    public Map<String, ArzEntry> getRecordsMetadata() {
         return recordsMetadata;
     }
+
+    /**
+     * Releases the file contents, records and strings not decoded yet can't be read after this method is called.
+     */
+    @Override
+    public void close() {
+        arzBuffer = null;
+    }
 }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabase.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precompiled index of an ARZ file (string table offsets and records table), stored in a sidecar file to skip parsing
+ * the ARZ tables on startup. The index is only used when the size, modification time and checksum of the ARZ file
+ * match the values stored in the sidecar.
+ */
+class ArzIndex {
+    private static final System.Logger logger = System.getLogger(ArzIndex.class.getName());
+    private static final Charset CHARSET = Charset.forName("CP1252");
+
+    // Sidecar file format (little-endian)
+    // 0x00 4 bytes magic "TQIX"
+    // 0x04 int32 format version
+    // 0x08 int64 arz file size
+    // 0x10 int64 arz file modification time (millis)
+    // 0x18 int64 checksum of the arz header and footer
+    // 0x20 int32 number of strings
+    // 0x24 int32 number of records
+    // 0x28 int32 number of record types
+    // 0x2c int32[number of strings] offset of each string in the arz file
+    // record types, each one is an int32 length followed by the string
+    // records, each one is int32 stringIndex, int32 record type index, int32 offset, int32 compressedSize,
+    //          int32 length and the normalized record path
+    private static final byte[] MAGIC = new byte[]{0x54, 0x51, 0x49, 0x58};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 44;
+
+    private final int[] stringsOffsets;
+    private final Map<String, ArzEntry> records;
+
+    ArzIndex(int[] stringsOffsets, Map<String, ArzEntry> records) {
+        this.stringsOffsets = stringsOffsets;
+        this.records = records;
+    }
+
+    int[] getStringsOffsets() {
+        return stringsOffsets;
+    }
+
+    Map<String, ArzEntry> getRecords() {
+        return records;
+    }
+
+    /**
+     * Reads the index from <b><code>indexFile</code></b>.
+     *
+     * @param indexFile The sidecar file
+     * @param key       Size, modification time and checksum of the arz file
+     * @return the index, or <b><code>null</code></b> if the file doesn't exist, is invalid or is stale
+     */
+    static ArzIndex read(Path indexFile, Key key) {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (NoSuchFileException e) {
+            logger.log(System.Logger.Level.DEBUG, "Index ''{0}'' not found", indexFile);
+            return null;
+        } catch (IOException e) {
+            logger.log(System.Logger.Level.WARNING, "Unable to read index " + indexFile, e);
+            return null;
+        }
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buf.get(magic);
+            if (!ByteBuffer.wrap(magic).equals(ByteBuffer.wrap(MAGIC)) || buf.getInt() != VERSION
+                    || !key.equals(new Key(buf.getLong(), buf.getLong(), buf.getLong()))) {
+                logger.log(System.Logger.Level.DEBUG, "Index ''{0}'' is stale", indexFile);
+                return null;
+            }
+            int numStrings = buf.getInt();
+            int numRecords = buf.getInt();
+            int numTypes = buf.getInt();
+            // counts of a corrupt file could allocate arrays larger than the file, each entry takes at least 4 bytes
+            if (numStrings < 0 || numRecords < 0 || numTypes < 0
+                    || (long) numStrings + numRecords + numTypes > buf.remaining() / 4) {
+                logger.log(System.Logger.Level.WARNING, "Invalid index ''{0}''", indexFile);
+                return null;
+            }
+
+            int[] stringsOffsets = new int[numStrings];
+            buf.asIntBuffer().get(stringsOffsets);
+            buf.position(buf.position() + numStrings * 4);
+
+            List<String> types = new ArrayList<>(numTypes);
+            for (int i = 0; i < numTypes; i++) {
+                types.add(readString(buf));
+            }
+
+            Map<String, ArzEntry> records = HashMap.newHashMap(numRecords);
+            for (int i = 0; i < numRecords; i++) {
+                int stringIndex = buf.getInt();
+                String recordType = types.get(buf.getInt());
+                int offset = buf.getInt();
+                int compressedSize = buf.getInt();
+                String id = readString(buf);
+                records.put(id, new ArzEntry(id, stringIndex, recordType, offset, compressedSize));
+            }
+            logger.log(System.Logger.Level.DEBUG, "Index ''{0}'' loaded, ''{1}'' records", indexFile, numRecords);
+            return new ArzIndex(stringsOffsets, Collections.unmodifiableMap(records));
+        } catch (RuntimeException e) {
+            logger.log(System.Logger.Level.WARNING, "Invalid index " + indexFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index to <b><code>indexFile</code></b>, replacing it atomically.
+     *
+     * @param indexFile The sidecar file
+     * @param key       Size, modification time and checksum of the arz file
+     * @throws IOException if the file can't be written
+     */
+    void write(Path indexFile, Key key) throws IOException {
+        Map<String, Integer> typeIndex = new HashMap<>();
+        List<byte[]> types = new ArrayList<>();
+        int size = HEADER_SIZE + stringsOffsets.length * 4;
+        for (ArzEntry e : records.values()) {
+            if (!typeIndex.containsKey(e.recordType())) {
+                typeIndex.put(e.recordType(), types.size());
+                byte[] type = e.recordType().getBytes(CHARSET);
+                types.add(type);
+                size += 4 + type.length;
+            }
+            size += 20 + e.id().length();
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(MAGIC).putInt(VERSION).putLong(key.size()).putLong(key.lastModified()).putLong(key.checksum());
+        buf.putInt(stringsOffsets.length).putInt(records.size()).putInt(types.size());
+        buf.asIntBuffer().put(stringsOffsets);
+        buf.position(buf.position() + stringsOffsets.length * 4);
+        for (byte[] type : types) {
+            buf.putInt(type.length).put(type);
+        }
+        for (ArzEntry e : records.values()) {
+            byte[] id = e.id().getBytes(CHARSET);
+            buf.putInt(e.stringIndex()).putInt(typeIndex.get(e.recordType())).putInt(e.offset())
+                    .putInt(e.compressedSize()).putInt(id.length).put(id);
+        }
+        buf.flip();
+
+        Path dir = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+            Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        logger.log(System.Logger.Level.DEBUG, "Index ''{0}'' written, ''{1}'' bytes", indexFile, size);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] data = new byte[buf.getInt()];
+        buf.get(data);
+        return new String(data, CHARSET);
+    }
+
+    /**
+     * Identifies the arz file an index was built from.
+     *
+     * @param size         Size of the arz file
+     * @param lastModified Modification time of the arz file, in milliseconds
+     * @param checksum     CRC32C of the arz header and footer
+     */
+    record Key(long size, long lastModified, long checksum) {
+    }
+}
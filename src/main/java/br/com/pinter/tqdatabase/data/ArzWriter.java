@@ -0,0 +1,581 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabase.data;
+
+import br.com.pinter.tqdatabase.Database;
+import br.com.pinter.tqdatabase.models.DbRecord;
+import br.com.pinter.tqdatabase.models.DbVariable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+/**
+ * Writes ARZ databases in the format read by {@link DatabaseReader}. Records are encoded as they are added, with
+ * their strings added to a deduplicated string table, and compressed in parallel. Compressed records are written in
+ * order as soon as they are ready, so only the string table, the records table and a bounded number of pending
+ * records are kept in memory. The tables are written when the writer is closed.
+ * <p>
+ * With a base database, see {@link Builder#withBaseDatabase(Path)}, the writer rebuilds it incrementally: the compressed
+ * data of the records not added or removed is copied without being compressed again, and strings of the base database
+ * keep their indices. The string table is rebuilt from the strings referenced by the records written, the strings
+ * only used by replaced or removed records are written as empty strings, and new strings are appended.
+ * <p>
+ * Records are added by a single thread.
+ */
+public class ArzWriter implements AutoCloseable {
+    private static final System.Logger logger = System.getLogger(ArzWriter.class.getName());
+    private static final int HEADER_SIZE = 24;
+    // 'R' and version 3
+    private static final int MAGIC = 0x30052;
+    private static final Charset CHARSET = Charset.forName("CP1252");
+    // 100ns intervals between 1601-01-01 and 1970-01-01, for the FILETIME of the records
+    private static final long FILETIME_EPOCH_OFFSET = 116444736000000000L;
+    // decimal notation only, parseFloat also accepts NaN, Infinity, hexadecimal and suffixed forms
+    private static final Pattern DECIMAL = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+    private final Path fileName;
+    private final FileChannel channel;
+    private final Executor executor;
+    private final int compressionLevel;
+    private final int maxPendingRecords;
+    private final Deque<PendingRecord> pending = new ArrayDeque<>();
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Set<String> recordIds = new HashSet<>();
+    private final Set<String> removedIds = new HashSet<>();
+    private final ArzFile base;
+    // strings of the base database referenced by the records written
+    private final BitSet baseStringsUsed = new BitSet();
+    private final int baseStringCount;
+    private final ByteArrayBuffer recordsTable = new ByteArrayBuffer();
+    private final Adler32 recordDataHash = new Adler32();
+    private final long filetime = System.currentTimeMillis() * 10000 + FILETIME_EPOCH_OFFSET;
+    private int numRecords;
+    private long position = HEADER_SIZE;
+    private boolean closed;
+    private IOException failure;
+
+    private ArzWriter(Builder builder) throws IOException {
+        this.fileName = builder.fileName;
+        this.executor = builder.executor;
+        this.compressionLevel = builder.compressionLevel;
+        this.maxPendingRecords = builder.maxPendingRecords;
+        if (builder.baseDatabase != null) {
+            if (Files.exists(fileName) && Files.isSameFile(fileName, builder.baseDatabase)) {
+                throw new IllegalArgumentException("The base database can't be overwritten: " + fileName);
+            }
+            base = new ArzFile(builder.baseDatabase.toString(), true, false, null);
+            baseStringCount = base.getStringCount();
+            // records copied from the base database reference its strings by index, the indices can't change
+            for (int i = 0; i < baseStringCount; i++) {
+                String s = base.getString(i);
+                strings.add(s);
+                stringIndex.putIfAbsent(s, i);
+            }
+        } else {
+            base = null;
+            baseStringCount = 0;
+        }
+        try {
+            this.channel = FileChannel.open(fileName, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            if (base != null) {
+                base.close();
+            }
+            throw e;
+        }
+    }
+
+    public static Builder builder(Path fileName) {
+        return new Builder(fileName);
+    }
+
+    /**
+     * Adds a record. The record path, type and variables are written, the string index and offset are assigned by
+     * the writer. Blocks while too many records are waiting to be written.
+     *
+     * @param dbRecord The record to add
+     * @throws IllegalArgumentException if a record with the same path was already added
+     * @throws IOException              if previously added records can't be written
+     */
+    public void add(DbRecord dbRecord) throws IOException {
+        add(dbRecord.getId(), dbRecord.getRecordType(), dbRecord.getVariables().values());
+    }
+
+    /**
+     * Adds a record from the text of a DBR file, lines in the format <code>name,value1;value2,</code>. Values are
+     * stored as integers if all of them are integers, as floats if all of them are numbers, and as strings otherwise.
+     * Variables without values are skipped. The record type is the value of the <code>Class</code> variable.
+     *
+     * @param recordPath The record path, e.g. <code>records/items/gearhead/a01_head01.dbr</code>
+     * @param lines      The lines of the DBR file
+     * @throws IllegalArgumentException if a record with the same path was already added
+     * @throws IOException              if previously added records can't be written
+     */
+    public void addDbr(String recordPath, List<String> lines) throws IOException {
+        Map<String, DbVariable> variables = new LinkedHashMap<>();
+        for (String line : lines) {
+            DbVariable v = parseDbrLine(line);
+            if (v != null) {
+                variables.put(v.getVariableName(), v);
+            }
+        }
+        DbVariable recordClass = variables.get(Database.Variables.CLASS);
+        String recordType = recordClass != null && recordClass.getType() == DbVariable.Type.STRING
+                ? recordClass.getString(0) : "";
+        add(recordPath, recordType, variables.values());
+    }
+
+    /**
+     * Removes a record of the base database from the output.
+     *
+     * @param recordPath The record path
+     * @return <b><code>true</code></b> if the base database contains the record
+     * @throws IllegalArgumentException if the record was added to this writer
+     */
+    public boolean remove(String recordPath) {
+        String normalized = DbRecord.normalizeRecordPath(recordPath);
+        if (normalized == null || recordIds.contains(normalized)) {
+            throw new IllegalArgumentException("Invalid or added record path '" + recordPath + "'");
+        }
+        return base != null && base.exists(normalized) && removedIds.add(normalized);
+    }
+
+    private static DbVariable parseDbrLine(String line) {
+        int nameEnd = line.indexOf(',');
+        if (nameEnd <= 0) {
+            return null;
+        }
+        String name = line.substring(0, nameEnd).trim();
+        int valueEnd = line.lastIndexOf(',');
+        String value = (valueEnd > nameEnd ? line.substring(nameEnd + 1, valueEnd) : line.substring(nameEnd + 1)).trim();
+        if (name.isEmpty() || value.isEmpty()) {
+            return null;
+        }
+        String[] values = value.split(";", -1);
+        int[] ints = new int[values.length];
+        float[] floats = new float[values.length];
+        boolean isInt = true;
+        boolean isFloat = true;
+        for (int i = 0; i < values.length && (isInt || isFloat); i++) {
+            String v = values[i].trim();
+            if (isInt) {
+                try {
+                    ints[i] = Integer.parseInt(v);
+                } catch (NumberFormatException e) {
+                    isInt = false;
+                }
+            }
+            isFloat = isFloat && DECIMAL.matcher(v).matches();
+            if (isFloat) {
+                floats[i] = Float.parseFloat(v);
+            }
+        }
+        if (isInt) {
+            return DbVariable.of(name, DbVariable.Type.INTEGER, ints);
+        } else if (isFloat) {
+            return DbVariable.ofFloat(name, floats);
+        }
+        return DbVariable.ofString(name, values);
+    }
+
+    private void add(String recordPath, String recordType, Iterable<DbVariable> variables) throws IOException {
+        checkState();
+        String normalized = DbRecord.normalizeRecordPath(recordPath);
+        if (normalized == null || !recordIds.add(normalized)) {
+            throw new IllegalArgumentException("Invalid or duplicate record path '" + recordPath + "'");
+        }
+
+        // strings are indexed on the calling thread, in the order the records are added
+        int size = 0;
+        for (DbVariable v : variables) {
+            size += 8 + 4 * v.valuesCount();
+        }
+        ByteBuffer data = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        for (DbVariable v : variables) {
+            data.putShort((short) v.getType().getValue()).putShort((short) v.valuesCount())
+                    .putInt(stringIndex(v.getVariableName()));
+            for (int i = 0; i < v.valuesCount(); i++) {
+                switch (v.getType()) {
+                    case FLOAT -> data.putFloat(v.getFloat(i));
+                    case STRING -> data.putInt(stringIndex(v.getString(i)));
+                    default -> data.putInt(v.getInt(i));
+                }
+            }
+        }
+
+        CompletableFuture<byte[]> compressed = CompletableFuture.supplyAsync(() -> deflate(data.array()), executor);
+        pending.add(new PendingRecord(stringIndex(recordPath), recordType == null ? "" : recordType, compressed));
+        while (pending.size() > maxPendingRecords) {
+            writeRecord(pending.remove());
+        }
+    }
+
+    private int stringIndex(String s) {
+        int index = stringIndex.computeIfAbsent(s, k -> {
+            strings.add(k);
+            return strings.size() - 1;
+        });
+        if (index < baseStringCount) {
+            baseStringsUsed.set(index);
+        }
+        return index;
+    }
+
+    private byte[] deflate(byte[] data) {
+        // each record is a complete zlib stream
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] out = new byte[data.length + data.length / 1000 + 64];
+            int size = 0;
+            while (!deflater.finished()) {
+                if (size == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                size += deflater.deflate(out, size, out.length - size);
+            }
+            return Arrays.copyOf(out, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void checkState() throws IOException {
+        if (failure != null) {
+            throw new IOException("Database '" + fileName + "' is incomplete after a previous error", failure);
+        }
+        if (closed) {
+            throw new IOException("Database '" + fileName + "' is closed");
+        }
+    }
+
+    private void writeRecord(PendingRecord r) throws IOException {
+        try {
+            byte[] data;
+            try {
+                data = r.compressed().join();
+            } catch (CompletionException ex) {
+                throw new IOException("Error compressing record for '" + fileName + "'", ex.getCause());
+            }
+            writeRecord(r.stringIndex(), r.recordType(), ByteBuffer.wrap(data));
+        } catch (IOException ex) {
+            // a missing record would leave the records table inconsistent, the database can't be completed
+            failure = ex;
+            throw ex;
+        }
+    }
+
+    private void writeRecord(int stringIndex, String recordType, ByteBuffer data) throws IOException {
+        int offset = checkOffset(position) - HEADER_SIZE;
+        int size = data.remaining();
+        recordDataHash.update(data.duplicate());
+        write(data);
+
+        byte[] type = recordType.getBytes(CHARSET);
+        ByteBuffer entry = ByteBuffer.allocate(24 + type.length).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putInt(stringIndex).putInt(type.length).put(type)
+                .putInt(offset).putInt(size).putLong(filetime);
+        recordsTable.write(entry.array());
+        numRecords++;
+    }
+
+    // copies the records of the base database not replaced or removed, in their original order, and marks the
+    // strings they reference
+    private void copyBaseRecords() throws IOException {
+        List<ArzEntry> entries = base.getRecordsMetadata().values().stream()
+                .filter(e -> e.offset() > 0 && !recordIds.contains(e.id()) && !removedIds.contains(e.id()))
+                .sorted(Comparator.comparingInt(ArzEntry::offset))
+                .toList();
+        // the records are decompressed only to find the strings they use, in parallel with the copy
+        Deque<CompletableFuture<int[]>> references = new ArrayDeque<>();
+        for (ArzEntry e : entries) {
+            references.add(CompletableFuture.supplyAsync(() -> stringReferences(e), executor));
+            while (references.size() > maxPendingRecords) {
+                markBaseStrings(references.remove());
+            }
+            baseStringsUsed.set(e.stringIndex());
+            writeRecord(e.stringIndex(), e.recordType(), base.getRecordData(e));
+        }
+        while (!references.isEmpty()) {
+            markBaseStrings(references.remove());
+        }
+        logger.log(DEBUG, "''{0}'' records copied from ''{1}''", entries.size(), base.getFileName());
+    }
+
+    private void markBaseStrings(CompletableFuture<int[]> references) throws IOException {
+        int[] indices;
+        try {
+            indices = references.join();
+        } catch (CompletionException ex) {
+            failure = new IOException("Error reading records from '" + base.getFileName() + "'", ex.getCause());
+            throw failure;
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= baseStringCount) {
+                failure = new IOException("Invalid string index " + index + " in '" + base.getFileName() + "'");
+                throw failure;
+            }
+            baseStringsUsed.set(index);
+        }
+    }
+
+    private int[] stringReferences(ArzEntry e) {
+        try {
+            return base.getStringReferences(e);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private int checkOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Database '" + fileName + "' exceeds the maximum size");
+        }
+        return (int) offset;
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private void writeTables() throws IOException {
+        long dataSize = position - HEADER_SIZE;
+        int recordsTableStart = checkOffset(position);
+        ByteBuffer table = ByteBuffer.wrap(recordsTable.array(), 0, recordsTable.size());
+        Adler32 recordsTableHash = new Adler32();
+        recordsTableHash.update(table.duplicate());
+        write(table);
+
+        int stringsTableStart = checkOffset(position);
+        // base strings not referenced are left empty, or dropped from the end of the table
+        int stringCount = strings.size();
+        while (stringCount > 0 && stringCount <= baseStringCount && !baseStringsUsed.get(stringCount - 1)) {
+            stringCount--;
+        }
+        ByteArrayBuffer stringTable = new ByteArrayBuffer();
+        stringTable.writeInt(stringCount);
+        for (int i = 0; i < stringCount; i++) {
+            if (i < baseStringCount && !baseStringsUsed.get(i)) {
+                stringTable.writeInt(0);
+                continue;
+            }
+            byte[] bytes = strings.get(i).getBytes(CHARSET);
+            stringTable.writeInt(bytes.length);
+            stringTable.write(bytes);
+        }
+        ByteBuffer stringsBuffer = ByteBuffer.wrap(stringTable.array(), 0, stringTable.size());
+        Adler32 stringsTableHash = new Adler32();
+        stringsTableHash.update(stringsBuffer.duplicate());
+        write(stringsBuffer);
+        checkOffset(position);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(recordsTableStart).putInt(recordsTable.size()).putInt(numRecords)
+                .putInt(stringsTableStart).putInt(stringTable.size()).flip();
+        Adler32 headerHash = new Adler32();
+        headerHash.update(header.duplicate());
+
+        // footer, adler32 of the whole file, the string table, the record data and the records table
+        long fileHash = adler32Combine(headerHash.getValue(), recordDataHash.getValue(), dataSize);
+        fileHash = adler32Combine(fileHash, recordsTableHash.getValue(), recordsTable.size());
+        fileHash = adler32Combine(fileHash, stringsTableHash.getValue(), stringTable.size());
+        ByteBuffer footer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        footer.putInt((int) fileHash).putInt((int) stringsTableHash.getValue())
+                .putInt((int) recordDataHash.getValue()).putInt((int) recordsTableHash.getValue());
+        write(footer.flip());
+
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    // checksum of two concatenated blocks from the checksum of each block, as adler32_combine from zlib
+    private static long adler32Combine(long adler1, long adler2, long length2) {
+        final long base = 65521;
+        long rem = length2 % base;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % base;
+        sum1 += (adler2 & 0xffff) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + base - rem;
+        if (sum1 >= base) sum1 -= base;
+        if (sum1 >= base) sum1 -= base;
+        if (sum2 >= (base << 1)) sum2 -= (base << 1);
+        if (sum2 >= base) sum2 -= base;
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Writes the remaining records and the tables, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (channel; base) {
+            if (failure != null) {
+                throw new IOException("Database '" + fileName + "' is incomplete after a previous error", failure);
+            }
+            while (!pending.isEmpty()) {
+                writeRecord(pending.remove());
+            }
+            if (base != null) {
+                copyBaseRecords();
+            }
+            writeTables();
+            logger.log(DEBUG, "Database ''{0}'' written, ''{1}'' records, ''{2}'' strings", fileName, numRecords, strings.size());
+        }
+    }
+
+    private record PendingRecord(int stringIndex, String recordType, CompletableFuture<byte[]> compressed) {
+    }
+
+    // growable little-endian byte array, exposing its content without copying
+    private static class ByteArrayBuffer {
+        private byte[] buf = new byte[8192];
+        private int size;
+
+        void write(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, size, b.length);
+            size += b.length;
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            buf[size++] = (byte) v;
+            buf[size++] = (byte) (v >>> 8);
+            buf[size++] = (byte) (v >>> 16);
+            buf[size++] = (byte) (v >>> 24);
+        }
+
+        private void ensure(int n) {
+            if (size + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + n));
+            }
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    public static class Builder {
+        private final Path fileName;
+        private Executor executor = ForkJoinPool.commonPool();
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private int maxPendingRecords = Runtime.getRuntime().availableProcessors() * 16;
+        private Path baseDatabase;
+
+        public Builder(Path fileName) {
+            this.fileName = Objects.requireNonNull(fileName);
+        }
+
+        /**
+         * @param executor The executor compressing the records, {@link ForkJoinPool#commonPool()} by default
+         * @return this builder
+         */
+        public Builder withExecutor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor);
+            return this;
+        }
+
+        /**
+         * @param compressionLevel The {@link Deflater} compression level
+         * @return this builder
+         */
+        public Builder withCompressionLevel(int compressionLevel) {
+            if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("invalid compression level: " + compressionLevel);
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /**
+         * @param maxPendingRecords Maximum number of records compressed or waiting to be written before
+         *                          {@link ArzWriter#add} blocks. Sixteen times the number of processors by default.
+         * @return this builder
+         */
+        public Builder withMaxPendingRecords(int maxPendingRecords) {
+            if (maxPendingRecords < 1) {
+                throw new IllegalArgumentException("maxPendingRecords must be positive");
+            }
+            this.maxPendingRecords = maxPendingRecords;
+            return this;
+        }
+
+        /**
+         * Rebuild <b><code>baseDatabase</code></b> incrementally. Records added to the writer replace the records with
+         * the same path, and the other records are copied as they are stored in the base database.
+         *
+         * @param baseDatabase The existing database, must not be the file being written
+         * @return this builder
+         */
+        public Builder withBaseDatabase(Path baseDatabase) {
+            this.baseDatabase = Objects.requireNonNull(baseDatabase);
+            return this;
+        }
+
+        public ArzWriter build() throws IOException {
+            return new ArzWriter(this);
+        }
+    }
+}
@@ -24,37 +24,148 @@ import br.com.pinter.tqdatabase.cache.CacheDbRecord;
 import br.com.pinter.tqdatabase.models.DbRecord;
 
 import java.io.IOException;
+import java.lang.ref.Cleaner;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.INFO;
 
-public class DatabaseReader {
+public class DatabaseReader implements AutoCloseable {
     private static final System.Logger logger = System.getLogger(DatabaseReader.class.getName());
+    // short key prefixes for each shared cache and distinct set of loaded databases in use by readers, the entries of a
+    // scope are removed from the cache when the last reader using it switches scope, is closed or is collected
+    private static final Map<ScopeKey, Scope> CACHE_SCOPES = new HashMap<>();
+    private static final AtomicInteger CACHE_SCOPE_COUNTER = new AtomicInteger();
+    private static final Cleaner CLEANER = Cleaner.create();
     private final List<ArzFile> arzFiles;
+    // maps each record path to the topmost database containing it
+    private volatile Map<String, ArzFile> recordIndex;
     private final List<Path> modsAdded = new ArrayList<>();
     private final boolean useCache;
+    private final CacheDbRecord cache;
+    private final boolean sharedCache;
+    private volatile String cacheScope = "";
+    private final ScopeLease scopeLease = new ScopeLease();
+    private final boolean memoryMapped;
+    private final boolean internStrings;
+    private final boolean persistentIndex;
+    private final Path indexDirectory;
 
     public DatabaseReader(String[] fileNames) throws IOException {
         this(fileNames, true);
     }
 
     public DatabaseReader(String[] fileNames, boolean useCache) throws IOException {
-        if (fileNames.length == 0) {
+        this(builder(fileNames).withCache(useCache));
+    }
+
+    private DatabaseReader(Builder builder) throws IOException {
+        if (builder.fileNames.length == 0) {
             throw new IOException("no database found");
         }
-        this.useCache = useCache;
+        this.useCache = builder.useCache;
+        this.cache = builder.cache != null ? builder.cache : new CacheDbRecord();
+        this.sharedCache = builder.sharedCache;
+        this.memoryMapped = builder.memoryMapped;
+        this.internStrings = builder.internStrings;
+        this.persistentIndex = builder.persistentIndex;
+        this.indexDirectory = builder.indexDirectory;
         List<ArzFile> files = new ArrayList<>();
-        for (String f : fileNames) {
+        for (String f : builder.fileNames) {
             if (f != null)
-                files.add(new ArzFile(f));
+                files.add(openArzFile(f));
         }
 
         this.arzFiles = files;
+        updateRecordIndex();
+        updateCacheScope();
+    }
+
+    private ArzFile openArzFile(String fileName) throws IOException {
+        return new ArzFile(fileName, memoryMapped, internStrings, indexFile(Path.of(fileName)));
+    }
+
+    // the sidecar index is stored next to the database, or in indexDirectory with a name unique for each database path
+    private Path indexFile(Path arzFile) {
+        if (!persistentIndex) {
+            return null;
+        }
+        if (indexDirectory == null) {
+            return arzFile.resolveSibling(arzFile.getFileName() + ".idx");
+        }
+        Path absolute = arzFile.toAbsolutePath().normalize();
+        return indexDirectory.resolve(String.format("%s-%08x.idx", absolute.getFileName(), absolute.toString().hashCode()));
+    }
+
+    private void updateRecordIndex() {
+        int size = arzFiles.stream().mapToInt(a -> a.getRecordsMetadata().size()).sum();
+        Map<String, ArzFile> index = HashMap.newHashMap(size);
+        // databases loaded last override the records from those loaded first
+        for (ArzFile arzFile : arzFiles) {
+            for (ArzEntry e : arzFile.getRecordsMetadata().values()) {
+                if (e.offset() > 0) {
+                    index.put(e.id(), arzFile);
+                }
+            }
+        }
+        recordIndex = index;
+        logger.log(DEBUG, "Record index updated, ''{0}'' records from ''{1}'' databases", index.size(), arzFiles.size());
+    }
+
+    // readers sharing a cache use keys prefixed by the identity of the loaded databases
+    private void updateCacheScope() {
+        if (sharedCache) {
+            String identity = arzFiles.stream().map(ArzFile::getIdentity).collect(Collectors.joining("|"));
+            ScopeKey key = new ScopeKey(cache, identity);
+            synchronized (CACHE_SCOPES) {
+                Scope scope = CACHE_SCOPES.computeIfAbsent(key, k -> new Scope(CACHE_SCOPE_COUNTER.incrementAndGet() + ":"));
+                scope.readers++;
+                cacheScope = scope.prefix;
+            }
+            ScopeKey previous = scopeLease.swap(key);
+            if (previous != null) {
+                releaseCacheScope(previous);
+            }
+            logger.log(DEBUG, "Using cache scope ''{0}'' for ''{1}''", cacheScope, identity);
+        }
+    }
+
+    private static void releaseCacheScope(ScopeKey key) {
+        Scope unused = null;
+        synchronized (CACHE_SCOPES) {
+            Scope scope = CACHE_SCOPES.get(key);
+            if (scope != null && --scope.readers == 0) {
+                unused = CACHE_SCOPES.remove(key);
+            }
+        }
+        if (unused != null) {
+            String prefix = unused.prefix;
+            key.cache().removeIf(k -> k.startsWith(prefix));
+            logger.log(DEBUG, "Cache scope ''{0}'' no longer used, entries removed", prefix);
+        }
+    }
+
+    // readers using a shared cache stop caching records when closed
+    private boolean isCacheEnabled() {
+        return useCache && (!sharedCache || scopeLease.key != null);
+    }
+
+    private String cacheKey(String normPath) {
+        return sharedCache ? cacheScope + normPath : normPath;
+    }
+
+    public static Builder builder(String[] fileNames) {
+        return new Builder(fileNames);
     }
 
     /**
@@ -66,19 +177,26 @@ public class DatabaseReader {
     public DbRecord getRecord(String recordPath) {
         DbRecord record = null;
         String normPath = DbRecord.normalizeRecordPath(recordPath);
-
-        if (useCache && CacheDbRecord.getInstance().containsKey(normPath)) {
-            return CacheDbRecord.getInstance().get(normPath);
+        if (normPath == null) {
+            return null;
         }
 
-        for (ArzFile arzFile : arzFiles) {
-            if (arzFile.exists(recordPath)) {
-                record = arzFile.getRecord(recordPath);
+        boolean cached = isCacheEnabled();
+        if (cached) {
+            // a single lookup, bounded caches can evict the entry between containsKey and get
+            record = cache.get(cacheKey(normPath));
+            if (record != null) {
+                return record;
             }
         }
 
-        if (record != null && useCache) {
-            CacheDbRecord.getInstance().put(normPath, record);
+        ArzFile arzFile = recordIndex.get(normPath);
+        if (arzFile != null) {
+            record = arzFile.getRecord(normPath);
+        }
+
+        if (record != null && cached) {
+            cache.put(cacheKey(normPath), record);
         }
         return record;
     }
@@ -98,8 +216,9 @@ public class DatabaseReader {
      * @param recordId The record-path to remove from cache
      */
     public void invalidateCacheEntry(String recordId) {
-        for (ArzFile arzFile : arzFiles) {
-            arzFile.invalidateCacheEntry(recordId);
+        String normPath = DbRecord.normalizeRecordPath(recordId);
+        if (normPath != null) {
+            cache.remove(cacheKey(normPath));
         }
     }
 
@@ -110,12 +229,8 @@ public class DatabaseReader {
      * @return <b><code>true</code></b> if exists, <b><code>false</code></b> if not
      */
     public boolean recordExists(String recordId) {
-        for (ArzFile arzFile : arzFiles) {
-            if (arzFile.exists(recordId)) {
-                return true;
-            }
-        }
-        return false;
+        String normPath = DbRecord.normalizeRecordPath(recordId);
+        return normPath != null && recordIndex.containsKey(normPath);
     }
 
     public List<Path> getLoadedDb() {
@@ -124,14 +239,27 @@ public class DatabaseReader {
 
     public Set<DbRecord> getRecordsForDb(Path arzFilename) {
         Optional<ArzFile> arz = arzFiles.stream().filter(db -> db.getFileName().equals(arzFilename)).findFirst();
-        return arz.map(arzFile -> Set.copyOf(arzFile.getRecordsMetadata().values())).orElse(Collections.emptySet());
+        return arz.map(arzFile -> arzFile.getRecordsMetadata().values().stream()
+                        .map(e -> new DbRecord(e.id(), e.stringIndex(), e.recordType(), e.offset(), Collections.emptyMap()))
+                        .collect(Collectors.toUnmodifiableSet()))
+                .orElse(Collections.emptySet());
     }
 
     public void loadMod(Path dbPath) throws IOException {
-        arzFiles.add(new ArzFile(dbPath.toAbsolutePath().toString()));
+        arzFiles.add(openArzFile(dbPath.toAbsolutePath().toString()));
         modsAdded.add(dbPath);
-        logger.log(INFO, "Mod loaded, clearing database cache");
-        CacheDbRecord.getInstance().clear();
+        updateRecordIndex();
+        onDatabasesChanged("Mod loaded");
+    }
+
+    private void onDatabasesChanged(String reason) {
+        if (sharedCache) {
+            logger.log(INFO, "{0}, switching database cache scope", reason);
+            updateCacheScope();
+        } else {
+            logger.log(INFO, "{0}, clearing database cache", reason);
+            cache.clear();
+        }
     }
 
     public void unloadMods() {
@@ -145,8 +273,162 @@ public class DatabaseReader {
                 }
         );
         if (removed) {
-            logger.log(INFO, "Mod unloaded, clearing database cache");
-            CacheDbRecord.getInstance().clear();
+            updateRecordIndex();
+            onDatabasesChanged("Mod unloaded");
+        }
+    }
+
+    /**
+     * Releases the cache scope of a reader using a shared cache, removing the cached records no other reader with the
+     * same databases uses. Records are still read after this, but are no longer cached in the shared cache. Readers
+     * not closed release their scope only after they are garbage collected.
+     */
+    @Override
+    public void close() {
+        scopeLease.run();
+    }
+
+    private record ScopeKey(CacheDbRecord cache, String identity) {
+    }
+
+    // the scope held by a reader, released by close() or by the cleaner after the reader is collected
+    private static final class ScopeLease implements Runnable {
+        private volatile ScopeKey key;
+
+        private synchronized ScopeKey swap(ScopeKey newKey) {
+            ScopeKey previous = key;
+            key = newKey;
+            return previous;
+        }
+
+        @Override
+        public void run() {
+            ScopeKey previous = swap(null);
+            if (previous != null) {
+                releaseCacheScope(previous);
+            }
+        }
+    }
+
+    private static final class Scope {
+        private final String prefix;
+        private int readers;
+
+        private Scope(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    public static class Builder {
+        private boolean useCache = true;
+        private CacheDbRecord cache;
+        private boolean sharedCache = false;
+        private boolean memoryMapped = false;
+        private boolean internStrings = false;
+        private boolean persistentIndex = false;
+        private Path indexDirectory;
+        private final String[] fileNames;
+
+        public Builder(String[] fileNames) {
+            this.fileNames = fileNames;
+        }
+
+        public Builder withCache(boolean useCache) {
+            this.useCache = useCache;
+            return this;
+        }
+
+        /**
+         * Use <b><code>cache</code></b> to keep decoded records, for example a {@link CacheDbRecord} bounded by a
+         * {@link br.com.pinter.tqdatabase.cache.CachePolicy}. Enables the cache. The cache is owned by the reader and
+         * cleared when mods are loaded or unloaded, it must not be passed to other readers. By default, each reader
+         * creates its own unbounded cache.
+         *
+         * @param cache The record cache
+         * @return this builder
+         */
+        public Builder withCache(CacheDbRecord cache) {
+            this.cache = Objects.requireNonNull(cache);
+            this.sharedCache = false;
+            this.useCache = true;
+            return this;
+        }
+
+        /**
+         * Use <b><code>cache</code></b> shared with other readers. Entries are keyed by the identity (path, size and
+         * modification time) of the loaded databases, so readers with different mods don't see each other's records,
+         * and readers with the same databases share them. Loading or unloading mods switches to a new key scope
+         * instead of clearing the cache. The records of a scope are removed from the cache when no reader uses it any
+         * more, after the readers switch scope or are closed with {@link DatabaseReader#close()}. Readers should be
+         * closed, the scope of a reader not closed is only released after it is garbage collected. Enables the cache.
+         *
+         * @param cache The record cache, e.g. {@link CacheDbRecord#getInstance()}
+         * @return this builder
+         */
+        public Builder withSharedCache(CacheDbRecord cache) {
+            this.cache = Objects.requireNonNull(cache);
+            this.sharedCache = true;
+            this.useCache = true;
+            return this;
+        }
+
+        /**
+         * Map the database files in memory instead of reading them to the heap.
+         *
+         * @param memoryMapped If <b><code>true</code></b>, the ARZ files are mapped read-only and records are decoded
+         *                     directly from the mapping.
+         * @return this builder
+         */
+        public Builder withMemoryMapping(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
+            return this;
+        }
+
+        /**
+         * Intern the strings decoded from the database string table.
+         *
+         * @param internStrings If <b><code>true</code></b>, record paths, variable names and string values are
+         *                      interned, so equal strings from different databases share the same instance.
+         * @return this builder
+         */
+        public Builder withStringInterning(boolean internStrings) {
+            this.internStrings = internStrings;
+            return this;
+        }
+
+        /**
+         * Store the parsed string and records tables of each database in a sidecar index file
+         * (<code>database.arz.idx</code>), and load it on the next start when it matches the database size,
+         * modification time and checksum. Errors writing the index are logged and ignored.
+         *
+         * @param persistentIndex If <b><code>true</code></b>, the sidecar index is used
+         * @return this builder
+         */
+        public Builder withPersistentIndex(boolean persistentIndex) {
+            this.persistentIndex = persistentIndex;
+            return this;
+        }
+
+        /**
+         * Store the sidecar index files in <b><code>indexDirectory</code></b> instead of next to the databases, for
+         * read-only game directories. Enables the persistent index.
+         *
+         * @param indexDirectory Directory for the index files
+         * @return this builder
+         */
+        public Builder withIndexDirectory(Path indexDirectory) {
+            this.indexDirectory = Objects.requireNonNull(indexDirectory);
+            this.persistentIndex = true;
+            return this;
+        }
+
+        public DatabaseReader build() throws IOException {
+            DatabaseReader reader = new DatabaseReader(this);
+            if (sharedCache) {
+                // releases the scope of readers never closed, the lease doesn't reference the reader
+                CLEANER.register(reader, reader.scopeLease);
+            }
+            return reader;
         }
     }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabase.data;
+
+import br.com.pinter.tqdatabase.models.ResourceType;
+
+/**
+ * Options for extracting an archive to a directory with {@link ResourceReader#extractAll(java.nio.file.Path, ExtractOptions)}.
+ * Instances are immutable, created with {@link #builder()}.
+ */
+public final class ExtractOptions {
+    private final int parallelism;
+    private final int maxInFlight;
+    private final boolean convertTextures;
+    private final ResourceType resourceType;
+
+    private ExtractOptions(Builder builder) {
+        this.parallelism = builder.parallelism;
+        this.maxInFlight = builder.maxInFlight > 0 ? builder.maxInFlight : builder.parallelism * 4;
+        this.convertTextures = builder.convertTextures;
+        this.resourceType = builder.resourceType;
+    }
+
+    /**
+     * @return options extracting all entries, without conversion, with one thread per processor in each stage
+     */
+    public static ExtractOptions defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    boolean isConvertTextures() {
+        return convertTextures;
+    }
+
+    ResourceType getResourceType() {
+        return resourceType;
+    }
+
+    public static class Builder {
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxInFlight;
+        private boolean convertTextures;
+        private ResourceType resourceType;
+
+        public Builder() {
+        }
+
+        /**
+         * @param parallelism Number of threads reading and writing, and number of threads inflating and converting
+         * @return this builder
+         */
+        public Builder withParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Maximum number of entries held in memory between the pipeline stages. Reading new entries waits while the
+         * limit is reached. The default is four times the parallelism.
+         *
+         * @param maxInFlight Maximum number of entries being processed
+         * @return this builder
+         */
+        public Builder withMaxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be positive");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param convertTextures If <b><code>true</code></b>, TEX textures are written as DDS files. Textures that
+         *                        can't be converted are written unchanged.
+         * @return this builder
+         */
+        public Builder withTextureConversion(boolean convertTextures) {
+            this.convertTextures = convertTextures;
+            return this;
+        }
+
+        /**
+         * @param resourceType Extract only the entries of this type, or all entries if <b><code>null</code></b>
+         * @return this builder
+         */
+        public Builder withResourceType(ResourceType resourceType) {
+            this.resourceType = resourceType;
+            return this;
+        }
+
+        public ExtractOptions build() {
+            return new ExtractOptions(this);
+        }
+    }
+}
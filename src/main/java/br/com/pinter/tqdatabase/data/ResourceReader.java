@@ -22,32 +22,51 @@ package br.com.pinter.tqdatabase.data;
 
 import br.com.pinter.tqdatabase.EntryNotFoundException;
 import br.com.pinter.tqdatabase.models.ResourceType;
+import br.com.pinter.tqdatabase.models.TextTable;
 import br.com.pinter.tqdatabase.models.Texture;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
-public class ResourceReader {
+public class ResourceReader implements AutoCloseable {
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 1024 * 1024;
     private final boolean useCache;
     private final ArcFile archive;
 
-    private ResourceReader(Path archiveFilename, boolean useCache) throws IOException {
-        this.useCache = useCache;
-        this.archive = new ArcFile(archiveFilename);
+    private ResourceReader(Builder builder) throws IOException {
+        this.useCache = builder.useCache;
+        this.archive = new ArcFile(builder.archiveFilename, builder.inflateExecutor, builder.parallelThreshold);
     }
 
+    /**
+     * @return unmodifiable list of the normalized names of all entries, in archive order
+     */
     public List<String> list() {
         return archive.listRecords();
     }
 
+    /**
+     * @param resourceType The type of the entries
+     * @return unmodifiable list of the normalized names of the entries of <b><code>resourceType</code></b>, in archive
+     * order. The lists are indexed when the archive is opened.
+     */
     public List<String> list(ResourceType resourceType) {
-        return archive.listRecords().stream().filter(f ->
-                        resourceType.getExtensions().stream().anyMatch(e ->
-                                f.toUpperCase().endsWith(e.toUpperCase())))
-                .collect(Collectors.toList());
+        return archive.listRecords(resourceType);
+    }
+
+    /**
+     * @param resourceName The entry name, case-insensitive, with slashes or backslashes
+     * @return <b><code>true</code></b> if the archive has the entry
+     */
+    public boolean contains(String resourceName) {
+        return archive.contains(resourceName);
     }
 
     public boolean isUseCache() {
@@ -58,8 +77,19 @@ public class ResourceReader {
         return new Builder(arcFilename);
     }
 
+    /**
+     * @param resourceName The entry to read
+     * @return a new array with the entry data
+     * @throws EntryNotFoundException if the entry doesn't exist
+     * @throws UncheckedIOException   if the archive can't be read, was closed, or the entry data is corrupt
+     */
     public byte[] getData(String resourceName) throws EntryNotFoundException {
-        byte[] data = archive.getData(resourceName);
+        byte[] data;
+        try {
+            data = archive.getData(resourceName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         if (data == null) {
             throw new EntryNotFoundException(String.format("Resource '%s' was not found in archive '%s'",
                     resourceName, archive.getArcFileName()));
@@ -67,6 +97,60 @@ public class ResourceReader {
         return data;
     }
 
+    /**
+     * Returns a read-only little-endian buffer with the data of <b><code>resourceName</code></b>. Uncompressed
+     * entries (fonts, sounds, most DDS textures) are served from the archive mapped in memory without copying to the
+     * heap. Compressed entries are inflated to the heap when this method is called, not when the buffer is read, use
+     * {@link #openStream(String)} to inflate them while reading.
+     *
+     * @param resourceName The entry to read
+     * @return a read-only buffer positioned at the start of the entry data
+     * @throws EntryNotFoundException if the entry doesn't exist
+     * @throws IOException            if the archive can't be read or the entry data is corrupt
+     */
+    public ByteBuffer getBuffer(String resourceName) throws IOException {
+        ByteBuffer data = archive.getBuffer(resourceName);
+        if (data == null) {
+            throw new EntryNotFoundException(String.format("Resource '%s' was not found in archive '%s'",
+                    resourceName, archive.getArcFileName()));
+        }
+        return data;
+    }
+
+    /**
+     * Opens a stream with the data of <b><code>resourceName</code></b>. The entry is read from the archive as the
+     * stream is consumed, compressed entries are inflated part by part, so large entries can be copied to a file or
+     * network connection without loading them entirely in memory. The stream must be closed, and can't be shared
+     * between threads.
+     *
+     * @param resourceName The entry to read
+     * @return an input stream with the entry data
+     * @throws EntryNotFoundException if the entry doesn't exist
+     * @throws IOException            if the archive was closed
+     */
+    public InputStream openStream(String resourceName) throws IOException {
+        InputStream stream = archive.openStream(resourceName);
+        if (stream == null) {
+            throw new EntryNotFoundException(String.format("Resource '%s' was not found in archive '%s'",
+                    resourceName, archive.getArcFileName()));
+        }
+        return stream;
+    }
+
+    /**
+     * Extracts the archive entries to <b><code>target</code></b>, keeping the directory structure of the archive.
+     * Entries are read, inflated, optionally converted and written in parallel, with a bounded number of entries in
+     * memory.
+     *
+     * @param target  The output directory, created if it doesn't exist
+     * @param options The extraction options
+     * @return the number of entries extracted
+     * @throws IOException if an entry can't be read or written, the extraction stops at the first error
+     */
+    public int extractAll(Path target, ExtractOptions options) throws IOException {
+        return new ArcExtractor(archive, options).extractAll(target);
+    }
+
     private <T> T read(ArcEntryReader<T> type) throws IOException {
         return type.readAll(this);
     }
@@ -75,16 +159,38 @@ public class ResourceReader {
         return type.readFile(this, resourceName);
     }
 
+    /**
+     * @return the tags of all text files in the archive, files listed last override the tags of those listed first.
+     * The map is an immutable {@link TextTable}.
+     */
     public Map<String, String> readText() throws IOException {
         return read(new TextReader());
     }
 
+    /**
+     * @param resourceName The text file
+     * @return the tags of a single text file, in an immutable {@link TextTable}
+     */
+    public Map<String, String> readText(String resourceName) throws IOException {
+        return read(new TextReader(), resourceName);
+    }
+
     public Texture readTexture(String resourceName) throws IOException {
         return read(new TextureReader(), resourceName);
     }
 
+    /**
+     * Closes the archive file. The reader can't be used after this.
+     */
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+
     public static class Builder {
         private boolean useCache = false;
+        private Executor inflateExecutor;
+        private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
         private final Path archiveFilename;
 
         public Builder(Path archiveFilename) {
@@ -96,8 +202,35 @@ public class ResourceReader {
             return this;
         }
 
+        /**
+         * Inflate the parts of compressed entries larger than 1MiB concurrently with <b><code>executor</code></b>.
+         *
+         * @param executor The executor running the part decompression, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}
+         * @return this builder
+         */
+        public Builder withParallelInflation(Executor executor) {
+            return withParallelInflation(executor, DEFAULT_PARALLEL_THRESHOLD);
+        }
+
+        /**
+         * Inflate the parts of compressed entries concurrently with <b><code>executor</code></b>. Smaller entries and
+         * entries with a single part are inflated on the calling thread.
+         *
+         * @param executor  The executor running the part decompression
+         * @param threshold Minimum uncompressed size, in bytes, of the entries inflated in parallel
+         * @return this builder
+         */
+        public Builder withParallelInflation(Executor executor, int threshold) {
+            if (threshold < 0) {
+                throw new IllegalArgumentException("threshold must not be negative");
+            }
+            this.inflateExecutor = Objects.requireNonNull(executor);
+            this.parallelThreshold = threshold;
+            return this;
+        }
+
         public ResourceReader build() throws IOException {
-            return new ResourceReader(archiveFilename, useCache);
+            return new ResourceReader(this);
         }
     }
 }
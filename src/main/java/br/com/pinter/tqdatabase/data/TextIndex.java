@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabase.data;
+
+import br.com.pinter.tqdatabase.models.ResourceType;
+import br.com.pinter.tqdatabase.models.TextTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+/**
+ * Index of the tags of text archives, mapping each tag to the text file and the position of its value. The text
+ * files are scanned once to build the index, without creating the values, and each value is only copied from its file
+ * when it is requested, then kept for the next requests. The decoded files are softly referenced, and decoded again
+ * only if the garbage collector cleared them. The tags are packed in a {@link TextTable}, with the file, offset and length of each
+ * value in an array. The archives stay open until the index is closed.
+ */
+public final class TextIndex implements AutoCloseable {
+    private static final System.Logger logger = System.getLogger(TextIndex.class.getName());
+    private final List<ResourceReader> archives;
+    private final List<TextFile> files;
+    // the tags, with empty values, only used to find the position of each tag
+    private final TextTable tags;
+    // file, offset and length in characters of the value of each tag, by position in the tags table
+    private final int[] locations;
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    private TextIndex(List<ResourceReader> archives, List<TextFile> files, TextTable tags, int[] locations) {
+        this.archives = archives;
+        this.files = files;
+        this.tags = tags;
+        this.locations = locations;
+    }
+
+    /**
+     * Scans the text files of <b><code>archives</code></b> concurrently. Tags from files in archives listed last, and
+     * from files listed last in each archive, override those listed first.
+     *
+     * @param archives The ordered text archives
+     * @param executor The executor scanning the text files
+     * @return the index of all tags
+     * @throws IOException if an archive can't be read
+     */
+    public static TextIndex build(List<Path> archives, Executor executor) throws IOException {
+        List<ResourceReader> readers = new ArrayList<>();
+        List<CompletableFuture<Scan>> scans = new ArrayList<>();
+        try {
+            for (Path archive : archives) {
+                ResourceReader reader = ResourceReader.builder(archive).build();
+                readers.add(reader);
+                for (String name : reader.list(ResourceType.TEXT)) {
+                    scans.add(CompletableFuture.supplyAsync(() -> scan(reader, name), executor));
+                }
+            }
+            List<TextFile> files = new ArrayList<>(scans.size());
+            TextTable.Builder tags = TextTable.builder();
+            int[] locations = new int[3 * 1024];
+            for (CompletableFuture<Scan> future : scans) {
+                Scan scan = join(future);
+                for (int i = 0; i < scan.tags.size(); i++) {
+                    int e = tags.addTag(scan.tags.get(i));
+                    if (3 * e + 3 > locations.length) {
+                        locations = Arrays.copyOf(locations, locations.length * 2);
+                    }
+                    locations[3 * e] = files.size();
+                    locations[3 * e + 1] = scan.offsets[2 * i];
+                    locations[3 * e + 2] = scan.offsets[2 * i + 1];
+                }
+                files.add(scan.file);
+            }
+            TextTable table = tags.build();
+            logger.log(DEBUG, "Indexed ''{0}'' tags from ''{1}'' text files", table.size(), files.size());
+            return new TextIndex(List.copyOf(readers), List.copyOf(files), table,
+                    Arrays.copyOf(locations, 3 * table.size()));
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture.allOf(scans.toArray(new CompletableFuture<?>[0])).handle((r, t) -> null).join();
+            for (ResourceReader r : readers) {
+                r.close();
+            }
+            throw e;
+        }
+    }
+
+    private static Scan join(CompletableFuture<Scan> scan) throws IOException {
+        try {
+            return scan.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // finds the tags of a file, and the position and length of their values, in bytes when the file can be parsed
+    // without decoding it and in characters otherwise. Only the tags are decoded, the file is kept softly so the first
+    // lookups don't inflate it again.
+    private static Scan scan(ResourceReader archive, String name) {
+        try {
+            byte[] data = archive.getData(name);
+            Charset charset = TextReader.charset(ByteBuffer.wrap(data));
+            if (TextReader.isParseableEncoded(charset, data.length)) {
+                TextFile file = new TextFile(archive, name, charset, true);
+                Scan scan = new Scan(file);
+                if (TextReader.parse(data, 0, data.length, charset, (t, tagStart, tagEnd, valueStart, valueEnd) ->
+                        scan.add(new String(t, tagStart, tagEnd - tagStart, charset), valueStart, valueEnd - valueStart))) {
+                    file.keep(data);
+                    return scan;
+                }
+            }
+            TextFile file = new TextFile(archive, name, charset, false);
+            Scan scan = new Scan(file);
+            CharBuffer text = charset.decode(ByteBuffer.wrap(data));
+            file.keep(text);
+            int base = text.arrayOffset() + text.position();
+            TextReader.parse(text.array(), base, text.arrayOffset() + text.limit(),
+                    (t, tagStart, tagEnd, valueStart, valueEnd) -> scan.add(
+                            new String(t, tagStart, tagEnd - tagStart), valueStart - base, valueEnd - valueStart));
+            return scan;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param tag The tag to search for
+     * @return the value of the tag, or <b><code>null</code></b> if not found
+     * @throws IOException if the text file can't be read
+     */
+    public String get(String tag) throws IOException {
+        if (tag == null) {
+            return null;
+        }
+        String value = values.get(tag);
+        if (value != null) {
+            return value;
+        }
+        int e = tags.indexOf(tag);
+        if (e < 0) {
+            return null;
+        }
+        value = files.get(locations[3 * e]).value(locations[3 * e + 1], locations[3 * e + 2]);
+        values.put(tag, value);
+        return value;
+    }
+
+    public boolean contains(String tag) {
+        return tags.indexOf(tag) >= 0;
+    }
+
+    public int size() {
+        return tags.size();
+    }
+
+    /**
+     * Closes the text archives. Values already requested are still returned after this.
+     */
+    @Override
+    public void close() throws IOException {
+        for (ResourceReader r : archives) {
+            r.close();
+        }
+    }
+
+    // tags found in a file, with the offset and length of their values
+    private static final class Scan {
+        private final TextFile file;
+        private final List<String> tags = new ArrayList<>();
+        private int[] offsets = new int[256];
+
+        private Scan(TextFile file) {
+            this.file = file;
+        }
+
+        private void add(String tag, int offset, int length) {
+            int i = 2 * tags.size();
+            if (i == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[i] = offset;
+            offsets[i + 1] = length;
+            tags.add(tag);
+        }
+    }
+
+    private static final class TextFile {
+        private final ResourceReader archive;
+        private final String name;
+        private final Charset charset;
+        // values are decoded from the bytes of the file, or copied from the decoded text of the other files
+        private final boolean encoded;
+        // the bytes or the decoded text, kept while memory allows
+        private volatile SoftReference<byte[]> data = new SoftReference<>(null);
+        private volatile SoftReference<CharBuffer> text = new SoftReference<>(null);
+
+        private TextFile(ResourceReader archive, String name, Charset charset, boolean encoded) {
+            this.archive = archive;
+            this.name = name;
+            this.charset = charset;
+            this.encoded = encoded;
+        }
+
+        private void keep(byte[] data) {
+            this.data = new SoftReference<>(data);
+        }
+
+        private void keep(CharBuffer text) {
+            this.text = new SoftReference<>(text);
+        }
+
+        // decodes the values as TextReader does, so they match the text loaded by it
+        private String value(int offset, int length) throws IOException {
+            if (encoded) {
+                byte[] d = data.get();
+                if (d == null) {
+                    d = archive.getData(name);
+                    keep(d);
+                }
+                return new String(d, offset, length, charset);
+            }
+            CharBuffer t = text.get();
+            if (t == null) {
+                t = charset.decode(archive.getBuffer(name));
+                keep(t);
+            }
+            return new String(t.array(), t.arrayOffset() + t.position() + offset, length);
+        }
+    }
+}
@@ -20,63 +20,192 @@
 
 package br.com.pinter.tqdatabase.data;
 
-import br.com.pinter.tqdatabase.cache.CacheText;
 import br.com.pinter.tqdatabase.models.ResourceType;
+import br.com.pinter.tqdatabase.models.TextTable;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
-class TextReader implements ArcEntryReader<Map<String, String>> {
+class TextReader implements ArcEntryReader<TextTable> {
     private static final System.Logger logger = System.getLogger(TextReader.class.getName());
 
-    private Map<String, String> readTxt(String filename, ResourceReader resourceReader) throws IOException {
-        Map<String, String> ret = new HashMap<>();
-        byte[] d = resourceReader.getData(filename);
+    /**
+     * Receives each tag found by {@link #parse}, as ranges of the text array.
+     */
+    interface TagConsumer {
+        void accept(char[] text, int tagStart, int tagEnd, int valueStart, int valueEnd);
+    }
+
+    /**
+     * Receives each tag found by {@link #parse(byte[], int, int, ByteTagConsumer)}, as ranges of the encoded text.
+     */
+    interface ByteTagConsumer {
+        void accept(byte[] text, int tagStart, int tagEnd, int valueStart, int valueEnd);
+    }
+
+    private void readTxt(String filename, ResourceReader resourceReader, TextTable.Builder ret) throws IOException {
+        ByteBuffer d = resourceReader.getBuffer(filename);
+        CharBuffer text = charset(d).decode(d);
+        parse(text.array(), text.arrayOffset() + text.position(), text.arrayOffset() + text.limit(),
+                (t, tagStart, tagEnd, valueStart, valueEnd) -> ret.put(new String(t, tagStart, tagEnd - tagStart),
+                        new String(t, valueStart, valueEnd - valueStart)));
+    }
+
+    // the encoding of a text file, from its byte order mark
+    static Charset charset(ByteBuffer data) throws IOException {
+        byte[] head = new byte[4];
+        data.get(data.position(), head, 0, Math.min(head.length, data.remaining()));
         try {
-            BufferedReader br = new BufferedReader(new StringReader(new String(d, BOM.toCharset(Arrays.copyOf(d, 4)))));
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("//")) {
-                    continue;
+            return Charset.forName(BOM.toCharset(head));
+        } catch (IllegalArgumentException e) {
+            logger.log(System.Logger.Level.ERROR, e);
+            throw new IOException(e);
+        }
+    }
+
+    // single pass over the text: lines starting with // are skipped, anything after // is ignored, lines are trimmed
+    // and split at the first '=', lines without a tag or a value are ignored
+    static void parse(char[] text, int start, int end, TagConsumer consumer) {
+        int pos = start;
+        if (pos < end && text[pos] == '\uFEFF') {
+            pos++;
+        }
+        while (pos < end) {
+            int lineStart = pos;
+            int lineEnd = pos;
+            int separator = -1;
+            boolean comment = false;
+            while (pos < end && text[pos] != '\n' && text[pos] != '\r') {
+                char c = text[pos];
+                if (!comment) {
+                    if (c == '/' && pos + 1 < end && text[pos + 1] == '/') {
+                        comment = true;
+                    } else {
+                        if (c == '=' && separator < 0) {
+                            separator = pos;
+                        }
+                        lineEnd = pos + 1;
+                    }
                 }
-                line = line.replaceAll("//.*", "").trim();
+                pos++;
+            }
+            // \r\n, \r or \n
+            if (pos < end && text[pos] == '\r') {
+                pos++;
+            }
+            if (pos < end && text[pos] == '\n') {
+                pos++;
+            }
+
+            while (lineStart < lineEnd && text[lineStart] <= ' ') {
+                lineStart++;
+            }
+            while (lineEnd > lineStart && text[lineEnd - 1] <= ' ') {
+                lineEnd--;
+            }
+            if (separator > lineStart && separator < lineEnd - 1) {
+                consumer.accept(text, lineStart, separator, separator + 1, lineEnd);
+            }
+        }
+    }
+
+    /**
+     * @return <b><code>true</code></b> if <b><code>length</code></b> bytes of text in <b><code>charset</code></b> can
+     * be parsed without decoding by {@link #parse(byte[], int, int, Charset, ByteTagConsumer)}
+     */
+    static boolean isParseableEncoded(Charset charset, int length) {
+        if (charset.equals(StandardCharsets.UTF_16LE) || charset.equals(StandardCharsets.UTF_16BE)) {
+            // an odd trailing byte is decoded as a replacement character
+            return length % 2 == 0;
+        }
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1);
+    }
 
-                String[] kv = line.split("=");
-                if (kv.length == 2 && kv[0] != null && kv[1] != null) {
-                    if (resourceReader.isUseCache()) {
-                        CacheText.getInstance().put(kv[0], kv[1]);
+    // same rules as parse(char[], ...) over the encoded text, reading UTF-16 code units or single bytes of UTF-8 and
+    // ISO-8859-1. The separators, spaces and control characters are single units, and every byte of other characters
+    // in UTF-8 is above 0x7f, so the ranges start and end at ASCII characters and decoding each one gives the same
+    // characters as decoding the whole text. The length of UTF-16 text must be even. Returns false, after passing some
+    // tags to the consumer, if a high surrogate isn't followed by a low one: the decoder replaces both units, so the
+    // text must be decoded to parse it as TextReader does.
+    static boolean parse(byte[] text, int start, int end, Charset charset, ByteTagConsumer consumer) {
+        int width = charset.equals(StandardCharsets.UTF_16LE) || charset.equals(StandardCharsets.UTF_16BE) ? 2 : 1;
+        boolean bigEndian = charset.equals(StandardCharsets.UTF_16BE);
+        int pos = start;
+        if (width == 2 && pos < end && unit(text, pos, width, bigEndian) == '\uFEFF') {
+            pos += 2;
+        } else if (width == 1 && end - pos >= 3
+                && text[pos] == (byte) 0xef && text[pos + 1] == (byte) 0xbb && text[pos + 2] == (byte) 0xbf) {
+            pos += 3;
+        }
+        while (pos < end) {
+            int lineStart = pos;
+            int lineEnd = pos;
+            int separator = -1;
+            boolean comment = false;
+            int c;
+            while (pos < end && (c = unit(text, pos, width, bigEndian)) != '\n' && c != '\r') {
+                if (width == 2 && Character.isHighSurrogate((char) c) && pos + 2 < end
+                        && !Character.isLowSurrogate((char) unit(text, pos + 2, width, bigEndian))) {
+                    return false;
+                }
+                if (!comment) {
+                    if (c == '/' && pos + width < end && unit(text, pos + width, width, bigEndian) == '/') {
+                        comment = true;
                     } else {
-                        ret.put(kv[0], kv[1]);
+                        if (c == '=' && separator < 0) {
+                            separator = pos;
+                        }
+                        lineEnd = pos + width;
                     }
                 }
+                pos += width;
+            }
+            if (pos < end && unit(text, pos, width, bigEndian) == '\r') {
+                pos += width;
+            }
+            if (pos < end && unit(text, pos, width, bigEndian) == '\n') {
+                pos += width;
+            }
+
+            while (lineStart < lineEnd && unit(text, lineStart, width, bigEndian) <= ' ') {
+                lineStart += width;
+            }
+            while (lineEnd > lineStart && unit(text, lineEnd - width, width, bigEndian) <= ' ') {
+                lineEnd -= width;
+            }
+            if (separator > lineStart && separator < lineEnd - width) {
+                consumer.accept(text, lineStart, separator, separator + width, lineEnd);
             }
-        } catch (UnsupportedEncodingException e) {
-            logger.log(System.Logger.Level.ERROR, e);
-            throw new IOException(e);
         }
+        return true;
+    }
 
-        return ret;
+    private static int unit(byte[] text, int pos, int width, boolean bigEndian) {
+        if (width == 1) {
+            return text[pos] & 0xff;
+        }
+        return bigEndian ? (text[pos] & 0xff) << 8 | (text[pos + 1] & 0xff)
+                : (text[pos] & 0xff) | (text[pos + 1] & 0xff) << 8;
     }
 
     @Override
-    public Map<String, String> readAll(ResourceReader resourceReader) throws IOException {
-        Map<String, String> ret = new HashMap<>();
+    public TextTable readAll(ResourceReader resourceReader) throws IOException {
+        TextTable.Builder ret = TextTable.builder();
         for (String tf : resourceReader.list(ResourceType.TEXT)) {
-            ret.putAll(readTxt(tf, resourceReader));
+            readTxt(tf, resourceReader, ret);
         }
-        return ret;
+        return ret.build();
     }
 
     @Override
-    public Map<String, String> readFile(ResourceReader resourceReader, String filename) throws IOException {
-        return readTxt(filename, resourceReader);
+    public TextTable readFile(ResourceReader resourceReader, String filename) throws IOException {
+        TextTable.Builder ret = TextTable.builder();
+        readTxt(filename, resourceReader, ret);
+        return ret.build();
     }
 
     static class BOM {
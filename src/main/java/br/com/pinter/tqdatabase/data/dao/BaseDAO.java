@@ -80,7 +80,7 @@ interface BaseDAO {
         Map<String, String> table = new HashMap<>();
         for (String k : r.getVariables().keySet()) {
             if (k.matches(prefix + "\\d+") && r.getVariables().get(k).getType() == DbVariable.Type.STRING) {
-                table.put(k, (String) r.getVariables().get(k).getValues().getFirst());
+                table.put(k, r.getVariables().get(k).getString(0));
             }
         }
         return table;
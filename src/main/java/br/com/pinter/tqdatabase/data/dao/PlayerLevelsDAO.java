@@ -88,7 +88,7 @@ public class PlayerLevelsDAO implements BaseDAO {
 
         if (dbVariables != null && !dbVariables.isEmpty()) {
             DbVariable v = dbVariables.getFirst();
-            if (v != null && v.getType() == DbVariable.Type.STRING && v.getValues().size() == 1) {
+            if (v != null && v.getType() == DbVariable.Type.STRING && v.valuesCount() == 1) {
                 DbRecord record = getRecord((String) dbVariables.getFirst().getFirstValue());
                 logger.log(System.Logger.Level.DEBUG, "playerLevels: found ''{0}''", record);
                 return record;
@@ -100,7 +100,7 @@ public class SkillDAO implements BaseDAO {
 
         DbVariable skillLevelVar = getVariableFromVarTableIndex(skillLevelVars, Integer.parseInt(strIdx));
         if (skillLevelVar != null && skillLevelVar.getType() == DbVariable.Type.INTEGER) {
-            return (Integer) skillLevelVar.getFirstValue();
+            return skillLevelVar.getInt(0);
         }
 
         return null;
@@ -257,8 +257,8 @@ public class SkillDAO implements BaseDAO {
         }
         if (skillDependancy != null && skillDependancy.hasValues()) {
             final List<DbRecord> list = new ArrayList<>();
-            skillDependancy.getValues().forEach(f -> {
-                DbRecord sdRecord = getRecord((String) f);
+            skillDependancy.getListString().forEach(f -> {
+                DbRecord sdRecord = getRecord(f);
                 if (sdRecord != null) {
                     list.add(sdRecord);
                 }
@@ -267,8 +267,8 @@ public class SkillDAO implements BaseDAO {
         }
         if (spawnObjects != null && spawnObjects.hasValues()) {
             final List<DbRecord> list = new ArrayList<>();
-            spawnObjects.getValues().forEach(f -> {
-                DbRecord soRecord = getRecord((String) f);
+            spawnObjects.getListString().forEach(f -> {
+                DbRecord soRecord = getRecord(f);
                 if (soRecord != null) {
                     list.add(soRecord);
                 }
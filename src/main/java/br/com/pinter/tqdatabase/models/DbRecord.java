@@ -28,17 +28,50 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * An immutable record decoded from the game database.
+ */
 public class DbRecord {
+    // only changed by the deprecated setters, records created by the library are never modified
     private String id;
     private int stringIndex;
     private String recordType;
     private int offset;
-    private Map<String, DbVariable> variables = new LinkedHashMap<>();
+    private Map<String, DbVariable> variables;
+
+    /**
+     * Creates an empty record with a modifiable map of variables.
+     *
+     * @deprecated Use {@link #DbRecord(String, int, String, int, Map)}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
+    public DbRecord() {
+        this.variables = new LinkedHashMap<>();
+    }
+
+    /**
+     * @param id          Normalized record path
+     * @param stringIndex Index of the record path in the database string table
+     * @param recordType  The record type
+     * @param offset      Offset of the record data in the database file
+     * @param variables   The record variables, the map is not copied and is exposed as an unmodifiable view
+     */
+    public DbRecord(String id, int stringIndex, String recordType, int offset, Map<String, DbVariable> variables) {
+        this.id = id;
+        this.stringIndex = stringIndex;
+        this.recordType = recordType;
+        this.offset = offset;
+        this.variables = Collections.unmodifiableMap(variables);
+    }
 
     public String getId() {
         return id;
     }
 
+    /**
+     * @deprecated Records are created with all their fields, see {@link #DbRecord(String, int, String, int, Map)}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
     public void setId(String id) {
         this.id = id;
     }
@@ -47,6 +80,10 @@ public class DbRecord {
         return stringIndex;
     }
 
+    /**
+     * @deprecated Records are created with all their fields, see {@link #DbRecord(String, int, String, int, Map)}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
     public void setStringIndex(int stringIndex) {
         this.stringIndex = stringIndex;
     }
@@ -55,6 +92,10 @@ public class DbRecord {
         return recordType;
     }
 
+    /**
+     * @deprecated Records are created with all their fields, see {@link #DbRecord(String, int, String, int, Map)}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
     public void setRecordType(String recordType) {
         this.recordType = recordType;
     }
@@ -63,6 +104,10 @@ public class DbRecord {
         return offset;
     }
 
+    /**
+     * @deprecated Records are created with all their fields, see {@link #DbRecord(String, int, String, int, Map)}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
     public void setOffset(int offset) {
         this.offset = offset;
     }
@@ -71,6 +116,11 @@ public class DbRecord {
         return variables;
     }
 
+    /**
+     * @param variables The record variables, the map is not copied
+     * @deprecated Records are created with all their fields, see {@link #DbRecord(String, int, String, int, Map)}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
     public void setVariables(Map<String, DbVariable> variables) {
         this.variables = variables;
     }
@@ -20,121 +20,337 @@
 
 package br.com.pinter.tqdatabase.models;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
+/**
+ * A variable from a database record. Values are stored in primitive arrays according to the variable type, use the
+ * indexed accessors ({@link #getInt(int)}, {@link #getFloat(int)}, ...) or the primitive streams to read them without
+ * boxing.
+ */
 public class DbVariable {
+    private static final int[] EMPTY_INT = new int[0];
+    private static final float[] EMPTY_FLOAT = new float[0];
+    private static final String[] EMPTY_STRING = new String[0];
+
+    // only changed by the deprecated mutators, variables created by the factories are never modified
     private String variableName;
     private DbVariable.Type type;
-    private final List<Object> values = new LinkedList<>();
+    // values for INTEGER, BOOLEAN and UNKNOWN
+    private int[] intValues;
+    // values for FLOAT
+    private float[] floatValues;
+    // values for STRING
+    private String[] stringValues;
+
+    private DbVariable(String variableName, Type type, int[] intValues, float[] floatValues, String[] stringValues) {
+        this.variableName = variableName;
+        this.type = type;
+        this.intValues = intValues;
+        this.floatValues = floatValues;
+        this.stringValues = stringValues;
+    }
+
+    /**
+     * Creates an empty variable of type {@link Type#UNKNOWN}.
+     *
+     * @deprecated Use {@link #of(String, Type, int[])}, {@link #ofFloat(String, float[])} or
+     * {@link #ofString(String, String[])}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
+    public DbVariable() {
+        this(null, Type.UNKNOWN, EMPTY_INT, EMPTY_FLOAT, EMPTY_STRING);
+    }
+
+    /**
+     * Creates a variable of type {@link Type#INTEGER}, {@link Type#BOOLEAN} or {@link Type#UNKNOWN}. Boolean values are
+     * stored as in the database, 1 is true. The array is not copied.
+     *
+     * @param variableName The variable name
+     * @param type         The variable type
+     * @param values       The values
+     * @return a new {@link DbVariable}
+     */
+    public static DbVariable of(String variableName, Type type, int[] values) {
+        if (type == Type.FLOAT || type == Type.STRING) {
+            throw new IllegalArgumentException("DbVariable of type " + type + " can't hold int values");
+        }
+        return new DbVariable(variableName, type, Objects.requireNonNull(values), EMPTY_FLOAT, EMPTY_STRING);
+    }
+
+    /**
+     * Creates a variable of type {@link Type#FLOAT}. The array is not copied.
+     *
+     * @param variableName The variable name
+     * @param values       The values
+     * @return a new {@link DbVariable}
+     */
+    public static DbVariable ofFloat(String variableName, float[] values) {
+        return new DbVariable(variableName, Type.FLOAT, EMPTY_INT, Objects.requireNonNull(values), EMPTY_STRING);
+    }
+
+    /**
+     * Creates a variable of type {@link Type#STRING}. The array is not copied.
+     *
+     * @param variableName The variable name
+     * @param values       The values
+     * @return a new {@link DbVariable}
+     */
+    public static DbVariable ofString(String variableName, String[] values) {
+        return new DbVariable(variableName, Type.STRING, EMPTY_INT, EMPTY_FLOAT, Objects.requireNonNull(values));
+    }
 
     public String getVariableName() {
         return variableName;
     }
 
+    /**
+     * @deprecated Variables are created with their name by the factories, see {@link #of(String, Type, int[])}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
     public void setVariableName(String variableName) {
         this.variableName = variableName;
     }
 
     public boolean hasValues() {
-        return !values.isEmpty();
+        return valuesCount() > 0;
     }
 
     public int valuesCount() {
-        return values.size();
+        return switch (type) {
+            case FLOAT -> floatValues.length;
+            case STRING -> stringValues.length;
+            default -> intValues.length;
+        };
     }
 
+    /**
+     * @return an unmodifiable view of the values, boxing each one when accessed
+     */
     public List<Object> getValues() {
-        return values;
-    }
-
-    public void addValue(Object value) {
-        this.values.add(value);
+        return switch (type) {
+            case FLOAT -> listView(floatValues.length, i -> floatValues[i]);
+            case STRING -> Collections.unmodifiableList(Arrays.asList(stringValues));
+            case BOOLEAN -> listView(intValues.length, this::getBoolean);
+            default -> listView(intValues.length, i -> intValues[i]);
+        };
     }
 
     public DbVariable.Type getType() {
         return type;
     }
 
+    /**
+     * Changes the type, converting the values already added.
+     *
+     * @deprecated Variables are created with their type by the factories, see {@link #of(String, Type, int[])}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
     public void setType(DbVariable.Type type) {
-        this.type = type;
+        List<Object> values = new ArrayList<>(getValues());
+        this.type = Objects.requireNonNull(type);
+        store(values);
     }
 
-    public Object getFirstValue() {
-        return values.getFirst();
+    /**
+     * Appends a value, copying the values array. The type must be set before adding values.
+     *
+     * @param value An {@link Integer}, {@link Float}, {@link Boolean} or {@link String} according to the type
+     * @deprecated Variables are created with all their values by the factories, see {@link #of(String, Type, int[])}
+     */
+    @Deprecated(since = "0.5", forRemoval = true)
+    public void addValue(Object value) {
+        List<Object> values = new ArrayList<>(getValues());
+        values.add(value);
+        store(values);
     }
 
-    public String getFirstString() {
+    // replaces the values with the boxed values, stored according to the type
+    private void store(List<Object> values) {
+        int n = values.size();
+        intValues = EMPTY_INT;
+        floatValues = EMPTY_FLOAT;
+        stringValues = EMPTY_STRING;
+        switch (type) {
+            case FLOAT -> {
+                floatValues = new float[n];
+                for (int i = 0; i < n; i++) {
+                    floatValues[i] = ((Number) values.get(i)).floatValue();
+                }
+            }
+            case STRING -> stringValues = values.toArray(new String[0]);
+            default -> {
+                intValues = new int[n];
+                for (int i = 0; i < n; i++) {
+                    Object v = values.get(i);
+                    intValues[i] = v instanceof Boolean b ? (b ? 1 : 0) : ((Number) v).intValue();
+                }
+            }
+        }
+    }
+
+    public int getInt(int index) {
+        if (type == Type.FLOAT || type == Type.STRING) {
+            throw new IllegalStateException("DbVariable not an integer");
+        }
+        return intValues[index];
+    }
+
+    public float getFloat(int index) {
+        if (type == Type.FLOAT) {
+            return floatValues[index];
+        }
+        throw new IllegalStateException("DbVariable not a float");
+    }
+
+    public boolean getBoolean(int index) {
+        if (type == Type.BOOLEAN) {
+            return intValues[index] == 1;
+        }
+        throw new IllegalStateException("DbVariable not a boolean");
+    }
+
+    public String getString(int index) {
         if (type == Type.STRING) {
-            return (String) values.getFirst();
+            return stringValues[index];
         }
         throw new IllegalStateException("DbVariable not a string");
     }
 
+    /**
+     * @return the values of an {@link Type#INTEGER} variable, or an empty stream for other types
+     */
+    public IntStream intStream() {
+        if (type == Type.INTEGER) {
+            return Arrays.stream(intValues);
+        }
+        return IntStream.empty();
+    }
+
+    /**
+     * @return the values of a {@link Type#FLOAT} variable, or an empty stream for other types
+     */
+    public DoubleStream doubleStream() {
+        if (type == Type.FLOAT) {
+            return IntStream.range(0, floatValues.length).mapToDouble(i -> floatValues[i]);
+        }
+        return DoubleStream.empty();
+    }
+
+    public Object getFirstValue() {
+        return getValues().getFirst();
+    }
+
+    public String getFirstString() {
+        return getString(0);
+    }
+
     public Integer getFirstInteger() {
         if (type == Type.INTEGER) {
-            return (Integer) values.getFirst();
+            return intValues[0];
         }
-        throw new IllegalStateException("DbVariable not a string");
+        throw new IllegalStateException("DbVariable not an integer");
     }
 
     public List<String> getListString() {
         if (type == Type.STRING) {
-            return values.stream().map(f -> (String) f).toList();
+            return Collections.unmodifiableList(Arrays.asList(stringValues));
         }
         return Collections.emptyList();
     }
 
     public List<Integer> getListInteger() {
         if (type == Type.INTEGER) {
-            return values.stream().map(f -> (Integer) f).toList();
+            return listView(intValues.length, i -> intValues[i]);
         }
         return Collections.emptyList();
     }
 
     public List<Float> getListFloat() {
         if (type == Type.FLOAT) {
-            return values.stream().map(f -> (Float) f).toList();
+            return listView(floatValues.length, i -> floatValues[i]);
         }
         return Collections.emptyList();
     }
 
     public List<Boolean> getListBoolean() {
         if (type == Type.BOOLEAN) {
-            return values.stream().map(f -> (Boolean) f).toList();
+            return listView(intValues.length, this::getBoolean);
         }
         return Collections.emptyList();
     }
 
+    private static <T> List<T> listView(int size, IntFunction<T> getter) {
+        return new AbstractList<>() {
+            @Override
+            public T get(int index) {
+                Objects.checkIndex(index, size);
+                return getter.apply(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
     public String asLine() {
-        String key = "";
+        if (type == Type.UNKNOWN) {
+            throw new IllegalArgumentException("unknown value");
+        }
+        String key = getVariableName();
         StringBuilder value = new StringBuilder();
-        key = getVariableName();
 
-        switch (type) {
-            case STRING -> value.append(String.join(";", getListString()));
-            case INTEGER -> value.append(String.join(";", getListInteger().stream().map(String::valueOf).toList()));
-            case FLOAT -> value.append(String.join(";", getListFloat().stream()
-                    .map(f -> String.format(Locale.ENGLISH, "%.6f", f))
-                    .toList()));
-            case BOOLEAN -> value.append(String.join(";", getListBoolean().stream()
-                    .map(f -> f ? "1" : "0")
-                    .toList()));
-            default -> throw new IllegalArgumentException("unknown value");
+        for (int i = 0; i < valuesCount(); i++) {
+            if (i > 0) {
+                value.append(';');
+            }
+            switch (type) {
+                case STRING -> value.append(stringValues[i]);
+                case INTEGER -> value.append(intValues[i]);
+                case FLOAT -> value.append(String.format(Locale.ENGLISH, "%.6f", floatValues[i]));
+                case BOOLEAN -> value.append(getBoolean(i) ? "1" : "0");
+                default -> throw new IllegalArgumentException("unknown value");
+            }
         }
         return String.format("%s,%s,", key, value);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DbVariable that = (DbVariable) o;
+        return Objects.equals(variableName, that.variableName) && type == that.type
+                && Arrays.equals(intValues, that.intValues) && Arrays.equals(floatValues, that.floatValues)
+                && Arrays.equals(stringValues, that.stringValues);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(variableName, type);
+        result = 31 * result + Arrays.hashCode(intValues);
+        result = 31 * result + Arrays.hashCode(floatValues);
+        result = 31 * result + Arrays.hashCode(stringValues);
+        return result;
+    }
+
     @Override
     public String toString() {
         return "DbVariable{" +
                 "variableName='" + variableName + '\'' +
-                ", values=" + values +
+                ", values=" + getValues() +
                 '}';
     }
 
@@ -151,6 +367,13 @@ public class DbVariable {
             this.value = value;
         }
 
+        /**
+         * @return the type code stored in the database
+         */
+        public int getValue() {
+            return value;
+        }
+
         public static Type valueOf(int value) {
             Optional<Type> o = Arrays.stream(values()).filter(v -> v.value == value).findFirst();
             return o.orElse(Type.UNKNOWN);
@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabase.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map of text tags to strings, storing all tags and values packed in a single array instead of one
+ * {@link String} for each of them. Tags are found with an open-addressing hash table, and values are decoded to a new
+ * {@link String} when requested. The text is stored with one byte for each character when all characters are
+ * Latin-1, and two bytes otherwise. Entries are kept in the order their tags were first added, and the position of a
+ * tag, see {@link #indexOf(String)}, can be used to keep more data for each tag in separate arrays.
+ */
+public final class TextTable extends AbstractMap<String, String> {
+    private static final TextTable EMPTY = new Builder().build();
+    // tags and values, one after the other, in characters
+    private final byte[] data;
+    private final boolean latin1;
+    // entry i has the tag from offsets[2i] to offsets[2i+1] and the value from offsets[2i+1] to offsets[2i+2]
+    private final int[] offsets;
+    private final int[] hashes;
+    // entry index + 1 for each used slot, 0 for empty slots
+    private final int[] slots;
+    private final int size;
+
+    private TextTable(byte[] data, boolean latin1, int[] offsets, int[] hashes, int[] slots, int size) {
+        this.data = data;
+        this.latin1 = latin1;
+        this.offsets = offsets;
+        this.hashes = hashes;
+        this.slots = slots;
+        this.size = size;
+    }
+
+    public static TextTable empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String tag && find(tag) >= 0;
+    }
+
+    /**
+     * @param key The tag
+     * @return a new string with the value of the tag, or <b><code>null</code></b> if the tag is not found
+     */
+    @Override
+    public String get(Object key) {
+        if (key instanceof String tag) {
+            int e = find(tag);
+            if (e >= 0) {
+                return decode(data, latin1, offsets[2 * e + 1], offsets[2 * e + 2]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param tag The tag
+     * @return the position of the tag in the order the tags were first added, or -1 if the tag is not found
+     */
+    public int indexOf(String tag) {
+        return tag == null ? -1 : find(tag);
+    }
+
+    private int find(String tag) {
+        int h = tag.hashCode();
+        int mask = slots.length - 1;
+        for (int i = spread(h) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int e = slots[i] - 1;
+            if (hashes[e] == h && equals(data, latin1, offsets[2 * e], offsets[2 * e + 1], tag)) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int e = next++;
+                        return new SimpleImmutableEntry<>(decode(data, latin1, offsets[2 * e], offsets[2 * e + 1]),
+                                decode(data, latin1, offsets[2 * e + 1], offsets[2 * e + 2]));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static char charAt(byte[] data, boolean latin1, int index) {
+        if (latin1) {
+            return (char) (data[index] & 0xff);
+        }
+        return (char) ((data[2 * index] & 0xff) | (data[2 * index + 1] & 0xff) << 8);
+    }
+
+    private static boolean equals(byte[] data, boolean latin1, int start, int end, String s) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (charAt(data, latin1, start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(byte[] data, boolean latin1, int start, int end) {
+        if (latin1) {
+            return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+        return new String(data, 2 * start, 2 * (end - start), StandardCharsets.UTF_16LE);
+    }
+
+    /**
+     * Builds a {@link TextTable}. A tag added again replaces the previous value, as in {@link Map#put}.
+     */
+    public static final class Builder {
+        private byte[] data = new byte[4096];
+        private int length;
+        private boolean latin1 = true;
+        // tag start, tag end, value start and value end of each entry, replaced values are left in data
+        private int[] entries = new int[4 * 64];
+        private int[] hashes = new int[64];
+        private int[] slots = new int[128];
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder put(String tag, String value) {
+            int h = tag.hashCode();
+            int mask = slots.length - 1;
+            int i = spread(h) & mask;
+            for (; slots[i] != 0; i = (i + 1) & mask) {
+                int e = slots[i] - 1;
+                if (hashes[e] == h && TextTable.equals(data, latin1, entries[4 * e], entries[4 * e + 1], tag)) {
+                    entries[4 * e + 2] = length;
+                    append(value);
+                    entries[4 * e + 3] = length;
+                    return this;
+                }
+            }
+            int e = newEntry(h, i);
+            entries[4 * e] = length;
+            append(tag);
+            entries[4 * e + 1] = length;
+            entries[4 * e + 2] = length;
+            append(value);
+            entries[4 * e + 3] = length;
+            // load factor of 1/2 keeps the probes short
+            if (size * 2 > slots.length) {
+                slots = rehash(hashes, size, slots.length * 2);
+            }
+            return this;
+        }
+
+        /**
+         * Adds <b><code>tag</code></b> with an empty value, unless it was already added.
+         *
+         * @param tag The tag
+         * @return the position the tag will have in the table
+         */
+        public int addTag(String tag) {
+            int h = tag.hashCode();
+            int mask = slots.length - 1;
+            int i = spread(h) & mask;
+            for (; slots[i] != 0; i = (i + 1) & mask) {
+                int e = slots[i] - 1;
+                if (hashes[e] == h && TextTable.equals(data, latin1, entries[4 * e], entries[4 * e + 1], tag)) {
+                    return e;
+                }
+            }
+            int e = newEntry(h, i);
+            entries[4 * e] = length;
+            append(tag);
+            entries[4 * e + 1] = length;
+            entries[4 * e + 2] = length;
+            entries[4 * e + 3] = length;
+            if (size * 2 > slots.length) {
+                slots = rehash(hashes, size, slots.length * 2);
+            }
+            return e;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Builder putAll(Map<String, String> tags) {
+            if (tags instanceof TextTable table) {
+                return putAll(table);
+            }
+            tags.forEach(this::put);
+            return this;
+        }
+
+        /**
+         * Adds all entries of <b><code>table</code></b> in order, copying the packed text without decoding it.
+         *
+         * @param table The table to add
+         * @return this builder
+         */
+        public Builder putAll(TextTable table) {
+            for (int t = 0; t < table.size; t++) {
+                int tagStart = table.offsets[2 * t];
+                int tagEnd = table.offsets[2 * t + 1];
+                int valueEnd = table.offsets[2 * t + 2];
+                int h = table.hashes[t];
+                int mask = slots.length - 1;
+                int i = spread(h) & mask;
+                int e = -1;
+                for (; slots[i] != 0; i = (i + 1) & mask) {
+                    int candidate = slots[i] - 1;
+                    if (hashes[candidate] == h && regionEquals(entries[4 * candidate], entries[4 * candidate + 1],
+                            table, tagStart, tagEnd)) {
+                        e = candidate;
+                        break;
+                    }
+                }
+                if (e < 0) {
+                    e = newEntry(h, i);
+                    entries[4 * e] = length;
+                    append(table, tagStart, tagEnd);
+                    entries[4 * e + 1] = length;
+                }
+                entries[4 * e + 2] = length;
+                append(table, tagEnd, valueEnd);
+                entries[4 * e + 3] = length;
+                if (size * 2 > slots.length) {
+                    slots = rehash(hashes, size, slots.length * 2);
+                }
+            }
+            return this;
+        }
+
+        private int newEntry(int hash, int slot) {
+            if (size == hashes.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+                hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            }
+            int e = size++;
+            hashes[e] = hash;
+            slots[slot] = e + 1;
+            return e;
+        }
+
+        private boolean regionEquals(int start, int end, TextTable table, int tableStart, int tableEnd) {
+            if (end - start != tableEnd - tableStart) {
+                return false;
+            }
+            for (int i = 0; i < end - start; i++) {
+                if (charAt(data, latin1, start + i) != charAt(table.data, table.latin1, tableStart + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void append(TextTable table, int start, int end) {
+            if (latin1 && !table.latin1) {
+                for (int i = start; i < end; i++) {
+                    if (charAt(table.data, false, i) > 0xff) {
+                        inflate();
+                        break;
+                    }
+                }
+            }
+            int width = latin1 ? 1 : 2;
+            ensureCapacity((length + end - start) * width);
+            if (latin1 == table.latin1) {
+                System.arraycopy(table.data, start * width, data, length * width, (end - start) * width);
+            } else {
+                for (int i = start, pos = length * width; i < end; i++) {
+                    char c = charAt(table.data, table.latin1, i);
+                    data[pos++] = (byte) c;
+                    if (!latin1) {
+                        data[pos++] = (byte) (c >>> 8);
+                    }
+                }
+            }
+            length += end - start;
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (bytes > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, bytes));
+            }
+        }
+
+        private void append(String s) {
+            if (latin1) {
+                for (int i = 0; i < s.length(); i++) {
+                    if (s.charAt(i) > 0xff) {
+                        inflate();
+                        break;
+                    }
+                }
+            }
+            int pos = latin1 ? length : 2 * length;
+            ensureCapacity(pos + (latin1 ? s.length() : 2 * s.length()));
+            if (latin1) {
+                for (int i = 0; i < s.length(); i++) {
+                    data[pos++] = (byte) s.charAt(i);
+                }
+            } else {
+                for (int i = 0; i < s.length(); i++) {
+                    char c = s.charAt(i);
+                    data[pos++] = (byte) c;
+                    data[pos++] = (byte) (c >>> 8);
+                }
+            }
+            length += s.length();
+        }
+
+        // switches to two bytes per character
+        private void inflate() {
+            byte[] wide = new byte[Math.max(data.length, 2 * length + 2)];
+            for (int i = 0; i < length; i++) {
+                wide[2 * i] = data[i];
+            }
+            data = wide;
+            latin1 = false;
+        }
+
+        private static int[] rehash(int[] hashes, int size, int capacity) {
+            int[] slots = new int[capacity];
+            int mask = capacity - 1;
+            for (int e = 0; e < size; e++) {
+                int i = spread(hashes[e]) & mask;
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = e + 1;
+            }
+            return slots;
+        }
+
+        /**
+         * @return a table with the entries added to this builder, the builder can be reused after this
+         */
+        public TextTable build() {
+            // packs the tags and live values in order, dropping replaced values
+            int chars = 0;
+            for (int e = 0; e < size; e++) {
+                chars += entries[4 * e + 1] - entries[4 * e] + entries[4 * e + 3] - entries[4 * e + 2];
+            }
+            int width = latin1 ? 1 : 2;
+            byte[] packed = new byte[chars * width];
+            int[] offsets = new int[2 * size + 1];
+            int pos = 0;
+            for (int e = 0; e < size; e++) {
+                offsets[2 * e] = pos;
+                pos = copy(entries[4 * e], entries[4 * e + 1], packed, pos, width);
+                offsets[2 * e + 1] = pos;
+                pos = copy(entries[4 * e + 2], entries[4 * e + 3], packed, pos, width);
+            }
+            offsets[2 * size] = pos;
+            int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+            int[] h = Arrays.copyOf(hashes, size);
+            return new TextTable(packed, latin1, offsets, h, rehash(h, size, capacity), size);
+        }
+
+        private int copy(int start, int end, byte[] packed, int pos, int width) {
+            System.arraycopy(data, start * width, packed, pos * width, (end - start) * width);
+            return pos + end - start;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.Resources;
+import br.com.pinter.tqdatabase.data.ArcWriter;
+import br.com.pinter.tqdatabase.data.ExtractOptions;
+import br.com.pinter.tqdatabase.data.ResourceReader;
+import br.com.pinter.tqdatabase.models.ResourceType;
+import br.com.pinter.tqdatabase.models.StorageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArcExtractorTest {
+    @TempDir
+    Path tempDir;
+
+    private Map<String, byte[]> entries() {
+        Random random = new Random(1);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            byte[] texture = new byte[10_000 + i * 1000];
+            random.nextBytes(texture);
+            entries.put(String.format("items/gear%02d.tex", i), texture);
+        }
+        entries.put("text/text_en.txt", "tagTest=Some text\r\n".repeat(2000).getBytes());
+        entries.put("fonts/font.fnt", new byte[]{1, 2, 3, 4, 5});
+        entries.put("empty.txt", new byte[0]);
+        return entries;
+    }
+
+    private Path archive(Map<String, byte[]> entries) throws IOException {
+        Path arc = tempDir.resolve("test.arc");
+        try (ArcWriter writer = ArcWriter.builder(arc).withPartSize(4096).build()) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                writer.add(e.getKey(), e.getValue(), e.getKey().endsWith(".fnt")
+                        ? StorageType.UNCOMPRESSED : StorageType.COMPRESSED);
+            }
+        }
+        return arc;
+    }
+
+    private static long countFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static boolean extractorThreadsAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(t -> t.getName().startsWith("arc-extract-") && t.isAlive());
+    }
+
+    @Test
+    void extractAll_Given_archive_Then_writeSameBytes() throws IOException {
+        Map<String, byte[]> entries = entries();
+        Path arc = archive(entries);
+        ExtractOptions options = ExtractOptions.builder().withParallelism(3).withMaxInFlight(2).build();
+
+        Path out = tempDir.resolve("reader");
+        try (ResourceReader reader = ResourceReader.builder(arc).build()) {
+            assertEquals(entries.size(), reader.extractAll(out, options));
+        }
+        Path outResources = tempDir.resolve("resources");
+        try (Resources resources = new Resources(arc)) {
+            assertEquals(entries.size(), resources.extractAll(outResources, ExtractOptions.defaults()));
+        }
+
+        for (Path dir : new Path[]{out, outResources}) {
+            assertEquals(entries.size(), countFiles(dir));
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                assertArrayEquals(e.getValue(), Files.readAllBytes(dir.resolve(e.getKey())), e.getKey());
+            }
+        }
+    }
+
+    @Test
+    void extractAll_Given_resourceType_Then_extractOnlyThatType() throws IOException {
+        Map<String, byte[]> entries = entries();
+        Path arc = archive(entries);
+        Path out = tempDir.resolve("out");
+        try (Resources resources = new Resources(arc)) {
+            assertEquals(20, resources.extractAll(out,
+                    ExtractOptions.builder().withResourceType(ResourceType.TEXTURE).build()));
+        }
+        assertEquals(20, countFiles(out));
+        assertArrayEquals(entries.get("items/gear07.tex"), Files.readAllBytes(out.resolve("items/gear07.tex")));
+        assertFalse(Files.exists(out.resolve("fonts")));
+        assertFalse(Files.exists(out.resolve("text")));
+    }
+
+    @Test
+    void extractAll_Given_parentPathInEntryName_Then_throwIOException() throws IOException {
+        Path arc = tempDir.resolve("evil.arc");
+        try (ArcWriter writer = ArcWriter.builder(arc).build()) {
+            writer.add("../evil.txt", new byte[]{1});
+            writer.add("text\\..\\..\\evil2.txt", new byte[]{2});
+        }
+        Path out = tempDir.resolve("out");
+        try (ResourceReader reader = ResourceReader.builder(arc).build()) {
+            IOException e = assertThrows(IOException.class, () -> reader.extractAll(out, ExtractOptions.defaults()));
+            assertTrue(e.getMessage().contains("Invalid entry path"), e.getMessage());
+        }
+        assertFalse(Files.exists(tempDir.resolve("evil.txt")));
+        assertFalse(Files.exists(tempDir.resolve("evil2.txt")));
+    }
+
+    @Test
+    void extractAll_Given_entryNotWritable_Then_propagateErrorAndShutdownPools() throws IOException {
+        Path arc = archive(entries());
+        Path out = tempDir.resolve("out");
+        // a directory where the entry file should be written
+        Files.createDirectories(out.resolve("fonts/font.fnt"));
+
+        try (ResourceReader reader = ResourceReader.builder(arc).build()) {
+            IOException e = assertThrows(IOException.class, () -> reader.extractAll(out,
+                    ExtractOptions.builder().withParallelism(2).withMaxInFlight(2).build()));
+            assertTrue(e.getMessage().contains("font.fnt"), e.getMessage());
+        }
+        // the pools were closed before extractAll returned, their threads finish right after
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (extractorThreadsAlive() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertFalse(extractorThreadsAlive());
+    }
+}
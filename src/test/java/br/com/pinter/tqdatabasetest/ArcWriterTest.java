@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.data.ArcWriter;
+import br.com.pinter.tqdatabase.data.ResourceReader;
+import br.com.pinter.tqdatabase.models.ResourceType;
+import br.com.pinter.tqdatabase.models.StorageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArcWriterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void add_Given_compressedAndStoredEntries_Then_readerReturnsSameData() throws IOException {
+        Path arc = tempDir.resolve("test.arc");
+        byte[] texture = new byte[100_000];
+        new Random(1).nextBytes(texture);
+        byte[] text = "tagTest=Some text\r\n".repeat(1000).getBytes();
+        byte[] font = new byte[]{1, 2, 3, 4, 5};
+
+        try (ArcWriter writer = ArcWriter.builder(arc).withPartSize(16 * 1024).build()) {
+            writer.add("items/texture.tex", texture);
+            writer.add("text/text_en.txt", text);
+            writer.add("fonts/font.fnt", font, StorageType.UNCOMPRESSED);
+        }
+
+        try (ResourceReader reader = ResourceReader.builder(arc).build()) {
+            assertEquals(3, reader.list().size());
+            assertEquals(1, reader.list(ResourceType.TEXTURE).size());
+            assertArrayEquals(texture, reader.getData("items/texture.tex"));
+            assertArrayEquals(text, reader.getData("TEXT\\TEXT_EN.TXT"));
+            assertArrayEquals(font, reader.getData("fonts/font.fnt"));
+            try (InputStream in = reader.openStream("items/texture.tex")) {
+                assertArrayEquals(texture, in.readAllBytes());
+            }
+            try (InputStream in = reader.openStream("text/text_en.txt")) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                for (int b = in.read(); b != -1; b = in.read()) {
+                    bytes.write(b);
+                }
+                assertArrayEquals(text, bytes.toByteArray());
+            }
+            ByteBuffer buffer = reader.getBuffer("fonts/font.fnt");
+            assertTrue(buffer.isReadOnly());
+            assertEquals(font.length, buffer.remaining());
+        }
+    }
+
+    @Test
+    void add_Given_duplicateName_Then_throwIllegalArgumentException() throws IOException {
+        try (ArcWriter writer = ArcWriter.builder(tempDir.resolve("dup.arc")).build()) {
+            writer.add("fonts/font.fnt", new byte[]{1});
+            assertThrows(IllegalArgumentException.class, () -> writer.add("FONTS\\FONT.FNT", new byte[]{2}));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.data.ArzWriter;
+import br.com.pinter.tqdatabase.data.DatabaseReader;
+import br.com.pinter.tqdatabase.models.DbRecord;
+import br.com.pinter.tqdatabase.models.DbVariable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArzWriterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void add_Given_recordsAndDbrText_Then_readerReturnsSameVariables() throws IOException {
+        Path arz = tempDir.resolve("database.arz");
+        Map<String, DbVariable> variables = new LinkedHashMap<>();
+        variables.put("Class", DbVariable.ofString("Class", new String[]{"ItemRelic"}));
+        variables.put("skillLevel", DbVariable.of("skillLevel", DbVariable.Type.INTEGER, new int[]{1, 2, 3}));
+        variables.put("isEnabled", DbVariable.of("isEnabled", DbVariable.Type.BOOLEAN, new int[]{1}));
+        variables.put("characterAttribute", DbVariable.ofFloat("characterAttribute", new float[]{0.5f, 1.5f}));
+        DbRecord relic = new DbRecord("records/items/relic01.dbr", 0, "ItemRelic", 0, variables);
+
+        try (ArzWriter writer = ArzWriter.builder(arz).withMaxPendingRecords(1).build()) {
+            writer.add(relic);
+            writer.addDbr("records\\items\\charm01.dbr", List.of(
+                    "Class,ItemCharm,",
+                    "itemLevel,10;20,",
+                    "dropScale,0.250000,",
+                    "skillName,records/items/relic01.dbr,",
+                    "empty,,"));
+        }
+
+        DatabaseReader reader = DatabaseReader.builder(new String[]{arz.toString()}).build();
+        assertEquals(2, reader.getRecordCount());
+        DbRecord read = reader.getRecord("records/items/relic01.dbr");
+        assertNotNull(read);
+        assertEquals("ItemRelic", read.getRecordType());
+        assertEquals(variables, read.getVariables());
+
+        DbRecord charm = reader.getRecord("records/items/charm01.dbr");
+        assertNotNull(charm);
+        assertEquals("ItemCharm", charm.getRecordType());
+        assertEquals(List.of(10, 20), charm.getListInteger("itemLevel"));
+        assertEquals(0.25f, charm.getVariables().get("dropScale").getFloat(0));
+        assertEquals(List.of("records/items/relic01.dbr"), charm.getListString("skillName"));
+        assertFalse(charm.getVariables().containsKey("empty"));
+    }
+
+    @Test
+    void addDbr_Given_nonDecimalNumbers_Then_storeStrings() throws IOException {
+        Path arz = tempDir.resolve("database.arz");
+        try (ArzWriter writer = ArzWriter.builder(arz).build()) {
+            writer.addDbr("records/values.dbr", List.of(
+                    "Class,Values,",
+                    "hex,0x1p3,",
+                    "hexUpper,-0X1.8P1,",
+                    "suffix,1.5f,",
+                    "nan,NaN,",
+                    "exponent,1.5e2;-.5;3.,"));
+        }
+
+        DbRecord values = DatabaseReader.builder(new String[]{arz.toString()}).build().getRecord("records/values.dbr");
+        assertEquals(List.of("0x1p3"), values.getListString("hex"));
+        assertEquals(List.of("-0X1.8P1"), values.getListString("hexUpper"));
+        assertEquals(List.of("1.5f"), values.getListString("suffix"));
+        assertEquals(List.of("NaN"), values.getListString("nan"));
+        assertEquals(List.of(150f, -0.5f, 3f), values.getVariables().get("exponent").getListFloat());
+    }
+
+    @Test
+    void add_Given_duplicateRecordPath_Then_throwIllegalArgumentException() throws IOException {
+        try (ArzWriter writer = ArzWriter.builder(tempDir.resolve("dup.arz")).build()) {
+            writer.addDbr("records/a.dbr", List.of("Class,A,"));
+            assertThrows(IllegalArgumentException.class, () -> writer.addDbr("RECORDS\\A.DBR", List.of("Class,A,")));
+        }
+    }
+
+    @Test
+    void withBaseDatabase_Given_changedRecords_Then_keepUnchangedRecords() throws IOException {
+        Path base = tempDir.resolve("base.arz");
+        try (ArzWriter writer = ArzWriter.builder(base).build()) {
+            writer.addDbr("records/a.dbr", List.of("Class,A,", "value,1,", "name,first,"));
+            writer.addDbr("records/b.dbr", List.of("Class,B,", "value,2,"));
+            writer.addDbr("records/c.dbr", List.of("Class,C,", "value,3,"));
+        }
+
+        Path arz = tempDir.resolve("database.arz");
+        try (ArzWriter writer = ArzWriter.builder(arz).withBaseDatabase(base).build()) {
+            writer.addDbr("records/b.dbr", List.of("Class,B,", "value,20,", "name,changed,"));
+            writer.addDbr("records/d.dbr", List.of("Class,D,", "value,4,"));
+            assertTrue(writer.remove("records/c.dbr"));
+            assertFalse(writer.remove("records/missing.dbr"));
+        }
+
+        DatabaseReader reader = DatabaseReader.builder(new String[]{arz.toString()}).build();
+        assertEquals(3, reader.getRecordCount());
+        assertEquals(List.of(1), reader.getRecord("records/a.dbr").getListInteger("value"));
+        assertEquals(List.of("first"), reader.getRecord("records/a.dbr").getListString("name"));
+        assertEquals(List.of(20), reader.getRecord("records/b.dbr").getListInteger("value"));
+        assertEquals(List.of("changed"), reader.getRecord("records/b.dbr").getListString("name"));
+        assertEquals("D", reader.getRecord("records/d.dbr").getRecordType());
+        assertFalse(reader.recordExists("records/c.dbr"));
+
+        // unchanged records are copied as stored, strings only used by removed records are dropped
+        assertEquals(storedRecords(base).get("records/a.dbr"), storedRecords(arz).get("records/a.dbr"));
+        assertNotEquals(storedRecords(base).get("records/b.dbr"), storedRecords(arz).get("records/b.dbr"));
+        List<String> strings = stringTable(arz);
+        assertTrue(strings.containsAll(List.of("records/a.dbr", "first", "records/b.dbr", "changed", "records/d.dbr")));
+        assertFalse(strings.contains("records/c.dbr"));
+        assertFalse(strings.contains("C"));
+    }
+
+    // compressed data of each record by path, read straight from the file
+    private static Map<String, ByteBuffer> storedRecords(Path arz) throws IOException {
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(arz)).order(ByteOrder.LITTLE_ENDIAN);
+        List<String> strings = stringTable(arz);
+        Map<String, ByteBuffer> ret = new HashMap<>();
+        file.position(file.getInt(4));
+        for (int i = 0; i < file.getInt(12); i++) {
+            String id = strings.get(file.getInt());
+            int typeLength = file.getInt();
+            file.position(file.position() + typeLength);
+            int offset = file.getInt() + 24;
+            int size = file.getInt();
+            file.getLong();
+            ret.put(id, file.slice(offset, size));
+        }
+        return ret;
+    }
+
+    private static List<String> stringTable(Path arz) throws IOException {
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(arz)).order(ByteOrder.LITTLE_ENDIAN);
+        file.position(file.getInt(16));
+        List<String> ret = new ArrayList<>();
+        for (int count = file.getInt(); count > 0; count--) {
+            byte[] bytes = new byte[file.getInt()];
+            file.get(bytes);
+            ret.add(new String(bytes, StandardCharsets.ISO_8859_1));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.cache.CacheDbRecord;
+import br.com.pinter.tqdatabase.cache.CachePolicy;
+import br.com.pinter.tqdatabase.models.DbRecord;
+import br.com.pinter.tqdatabase.models.DbVariable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheDbRecordTest {
+    private static DbRecord record(String id) {
+        return new DbRecord(id, 0, "Skill", 24,
+                Map.of("Class", DbVariable.ofString("Class", new String[]{"Skill"})));
+    }
+
+    @Test
+    void put_Given_lruPolicy_Then_evictLeastRecentlyUsed() {
+        CacheDbRecord cache = new CacheDbRecord(CachePolicy.builder().withMaximumEntries(2).build());
+        cache.put("A", record("A"));
+        cache.put("B", record("B"));
+        assertNotNull(cache.get("A"));
+        cache.put("C", record("C"));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("A"));
+        assertNull(cache.get("B"));
+    }
+
+    @Test
+    void put_Given_fifoPolicy_Then_evictOldest() {
+        CacheDbRecord cache = new CacheDbRecord(CachePolicy.builder().withMaximumEntries(2)
+                .withEviction(CachePolicy.Eviction.FIFO).build());
+        cache.put("A", record("A"));
+        cache.put("B", record("B"));
+        assertNotNull(cache.get("A"));
+        cache.put("C", record("C"));
+        assertNull(cache.get("A"));
+        assertNotNull(cache.get("B"));
+    }
+
+    @Test
+    void put_Given_maximumBytes_Then_keepWeightWithinLimit() {
+        CacheDbRecord single = new CacheDbRecord(CachePolicy.builder().withMaximumEntries(1).build());
+        single.put("A", record("A"));
+        long recordSize = single.weight();
+        assertTrue(recordSize > 0);
+        CacheDbRecord cache = new CacheDbRecord(CachePolicy.builder().withMaximumBytes(recordSize * 3).build());
+        for (int i = 0; i < 10; i++) {
+            cache.put(String.valueOf(i), record(String.valueOf(i)));
+        }
+        assertEquals(3, cache.size());
+        assertTrue(cache.weight() <= recordSize * 3);
+        cache.clear();
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    void removeIf_Given_keyPrefix_Then_removeMatchingEntriesAndWeight() {
+        CacheDbRecord cache = new CacheDbRecord(CachePolicy.builder().withMaximumEntries(10).build());
+        cache.put("1:A", record("A"));
+        long recordSize = cache.weight();
+        cache.put("1:B", record("B"));
+        cache.put("2:A", record("A"));
+        cache.removeIf(k -> k.startsWith("1:"));
+        assertEquals(1, cache.size());
+        assertEquals(recordSize, cache.weight());
+        assertNotNull(cache.get("2:A"));
+    }
+}
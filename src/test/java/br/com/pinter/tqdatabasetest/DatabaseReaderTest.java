@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.cache.CacheDbRecord;
+import br.com.pinter.tqdatabase.data.ArzWriter;
+import br.com.pinter.tqdatabase.data.DatabaseReader;
+import br.com.pinter.tqdatabase.models.DbRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseReaderTest {
+    private static final String SHARED = "records/shared.dbr";
+
+    @TempDir
+    Path tempDir;
+
+    private Path database(String name, String... recordPaths) throws IOException {
+        Path arz = tempDir.resolve(name);
+        try (ArzWriter writer = ArzWriter.builder(arz).build()) {
+            for (String recordPath : recordPaths) {
+                writer.addDbr(recordPath, List.of("Class,Test,", "source," + name + ","));
+            }
+        }
+        return arz;
+    }
+
+    private static String source(DatabaseReader reader, String recordPath) {
+        return reader.getRecord(recordPath).getListString("source").getFirst();
+    }
+
+    @Test
+    void withSharedCache_Given_differentMods_Then_keepScopesSeparateAndFreeUnused() throws IOException {
+        Path base = database("base.arz", SHARED);
+        Path mod = database("mod.arz", SHARED);
+        CacheDbRecord cache = new CacheDbRecord();
+
+        try (DatabaseReader vanilla = DatabaseReader.builder(new String[]{base.toString()}).withSharedCache(cache).build();
+             DatabaseReader modded = DatabaseReader.builder(new String[]{base.toString()}).withSharedCache(cache).build()) {
+            assertEquals("base.arz", source(vanilla, SHARED));
+            // same databases, same scope
+            assertEquals("base.arz", source(modded, SHARED));
+            assertEquals(1, cache.size());
+
+            modded.loadMod(mod);
+            assertEquals("mod.arz", source(modded, SHARED));
+            assertEquals("base.arz", source(vanilla, SHARED));
+            assertEquals(2, cache.size());
+
+            // the scope with the mod has no readers left
+            modded.unloadMods();
+            assertEquals(1, cache.size());
+            assertEquals("base.arz", source(modded, SHARED));
+            assertEquals(1, cache.size());
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void withSharedCache_Given_readerNotClosed_Then_releaseScopeWhenCollected() throws IOException, InterruptedException {
+        Path base = database("base.arz", SHARED);
+        CacheDbRecord cache = new CacheDbRecord();
+        DatabaseReader reader = DatabaseReader.builder(new String[]{base.toString()}).withSharedCache(cache).build();
+        assertEquals("base.arz", source(reader, SHARED));
+        assertEquals(1, cache.size());
+
+        reader = null;
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (cache.size() > 0 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void loadMod_Given_recordInSeveralDatabases_Then_lastLoadedWinsUntilUnloaded() throws IOException {
+        Path base = database("base.arz", SHARED, "records/base.dbr");
+        Path expansion = database("expansion.arz", SHARED, "records/expansion.dbr");
+        Path mod = database("mod.arz", SHARED, "records/mod.dbr");
+
+        try (DatabaseReader reader = DatabaseReader.builder(new String[]{base.toString(), expansion.toString()})
+                .withCache(false).build()) {
+            assertEquals("expansion.arz", source(reader, SHARED));
+            assertEquals("base.arz", source(reader, "records/base.dbr"));
+            assertFalse(reader.recordExists("records/mod.dbr"));
+
+            reader.loadMod(mod);
+            assertEquals("mod.arz", source(reader, SHARED));
+            assertEquals("expansion.arz", source(reader, "records/expansion.dbr"));
+            assertEquals("mod.arz", source(reader, "records/mod.dbr"));
+
+            reader.unloadMods();
+            assertEquals("expansion.arz", source(reader, SHARED));
+            assertEquals("base.arz", source(reader, "records/base.dbr"));
+            assertFalse(reader.recordExists("records/mod.dbr"));
+            assertNull(reader.getRecord("records/mod.dbr"));
+        }
+
+        // order of the databases given to the builder
+        try (DatabaseReader reader = DatabaseReader.builder(new String[]{expansion.toString(), base.toString()})
+                .withCache(false).build()) {
+            assertEquals("base.arz", source(reader, SHARED));
+        }
+    }
+
+    private Path valuesDatabase() throws IOException {
+        Path arz = tempDir.resolve("values.arz");
+        try (ArzWriter writer = ArzWriter.builder(arz).build()) {
+            for (int i = 0; i < 20; i++) {
+                writer.addDbr(String.format("records/values/rec%02d.dbr", i), List.of(
+                        "Class,Values,",
+                        "description,shared value,",
+                        "name,value " + i + ",",
+                        "levels," + i + ";" + (i * 2) + ",",
+                        "scale," + i + ".25;0.5,",
+                        "skills,records/skills/skill" + (i % 3) + ".dbr;shared value,"));
+            }
+        }
+        return arz;
+    }
+
+    @Test
+    void withMemoryMapping_Given_sameDatabase_Then_readSameRecords() throws IOException {
+        Path arz = valuesDatabase();
+        try (DatabaseReader mapped = DatabaseReader.builder(new String[]{arz.toString()})
+                .withCache(false).withMemoryMapping(true).build();
+             DatabaseReader read = DatabaseReader.builder(new String[]{arz.toString()})
+                     .withCache(false).withMemoryMapping(false).build()) {
+            assertEquals(read.getRecordCount(), mapped.getRecordCount());
+            for (int i = 0; i < 20; i++) {
+                String recordPath = String.format("records/values/rec%02d.dbr", i);
+                DbRecord expected = read.getRecord(recordPath);
+                assertEquals(expected, mapped.getRecord(recordPath));
+                assertEquals(expected.getVariables(), mapped.getRecord(recordPath).getVariables());
+            }
+            assertEquals(List.of(7, 14), mapped.getRecord("records/values/rec07.dbr").getListInteger("levels"));
+            assertEquals(List.of(7.25f, 0.5f),
+                    mapped.getRecord("records/values/rec07.dbr").getVariables().get("scale").getListFloat());
+            assertNull(mapped.getRecord("records/values/missing.dbr"));
+        }
+    }
+
+    @Test
+    void withStringInterning_Given_repeatedValues_Then_shareStringsAndReadSameRecords() throws IOException {
+        Path arz = valuesDatabase();
+        try (DatabaseReader interned = DatabaseReader.builder(new String[]{arz.toString()})
+                .withCache(false).withStringInterning(true).build();
+             DatabaseReader plain = DatabaseReader.builder(new String[]{arz.toString()}).withCache(false).build()) {
+            for (int i = 0; i < 20; i++) {
+                String recordPath = String.format("records/values/rec%02d.dbr", i);
+                assertEquals(plain.getRecord(recordPath).getVariables(), interned.getRecord(recordPath).getVariables());
+                assertEquals(List.of("value " + i), interned.getRecord(recordPath).getListString("name"));
+            }
+
+            DbRecord first = interned.getRecord("records/values/rec01.dbr");
+            DbRecord second = interned.getRecord("records/values/rec04.dbr");
+            // a value decoded once from the string table is shared by every record using it
+            assertSame(first.getListString("description").getFirst(), second.getListString("description").getFirst());
+            assertSame(first.getListString("skills").getFirst(), second.getListString("skills").getFirst());
+            assertSame(first.getListString("description").getFirst(), first.getListString("skills").get(1));
+            // and interned
+            assertSame("shared value", first.getListString("description").getFirst());
+            assertSame("records/skills/skill1.dbr", first.getListString("skills").getFirst());
+            assertNotSame("value 1", plain.getRecord("records/values/rec01.dbr").getListString("name").getFirst());
+            assertEquals("value 1", first.getListString("name").getFirst());
+        }
+    }
+
+    private Path indexedDatabase() throws IOException {
+        Path arz = tempDir.resolve("database.arz");
+        try (ArzWriter writer = ArzWriter.builder(arz).build()) {
+            for (int i = 0; i < 50; i++) {
+                writer.addDbr(String.format("records/index/rec%02d.dbr", i), List.of("Class,Indexed,", "value," + i + ","));
+            }
+        }
+        return arz;
+    }
+
+    private static DatabaseReader open(Path arz, boolean persistentIndex) throws IOException {
+        return DatabaseReader.builder(new String[]{arz.toString()}).withCache(false)
+                .withPersistentIndex(persistentIndex).build();
+    }
+
+    // size, modification time and checksum of the database stored in the sidecar header
+    private static long[] sidecarKey(Path sidecar) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(sidecar)).order(ByteOrder.LITTLE_ENDIAN);
+        return new long[]{header.getLong(8), header.getLong(16), header.getLong(24)};
+    }
+
+    private static void assertSameRecords(Path arz, DatabaseReader reader) throws IOException {
+        DatabaseReader parsed = open(arz, false);
+        assertEquals(parsed.getRecordCount(), reader.getRecordCount());
+        for (int i = 0; i < 50; i++) {
+            String recordPath = String.format("records/index/rec%02d.dbr", i);
+            assertEquals(parsed.getRecord(recordPath), reader.getRecord(recordPath));
+        }
+    }
+
+    @Test
+    void withPersistentIndex_Given_validSidecar_Then_loadSameRecordsWithoutRewriting() throws IOException {
+        Path arz = indexedDatabase();
+        Path sidecar = arz.resolveSibling("database.arz.idx");
+        open(arz, true);
+        assertTrue(Files.exists(sidecar));
+        assertArrayEquals(new long[]{Files.size(arz), Files.getLastModifiedTime(arz).toMillis()},
+                Arrays.copyOf(sidecarKey(sidecar), 2));
+
+        byte[] written = Files.readAllBytes(sidecar);
+        FileTime sidecarTime = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(sidecar, sidecarTime);
+        assertSameRecords(arz, open(arz, true));
+        // a valid sidecar is used as it is
+        assertEquals(sidecarTime, Files.getLastModifiedTime(sidecar));
+        assertArrayEquals(written, Files.readAllBytes(sidecar));
+    }
+
+    @Test
+    void withPersistentIndex_Given_staleSidecar_Then_rewriteIt() throws IOException {
+        Path arz = indexedDatabase();
+        Path sidecar = arz.resolveSibling("database.arz.idx");
+        open(arz, true);
+
+        // modification time
+        FileTime touched = FileTime.fromMillis(Files.getLastModifiedTime(arz).toMillis() - 60_000);
+        Files.setLastModifiedTime(arz, touched);
+        assertSameRecords(arz, open(arz, true));
+        assertEquals(touched.toMillis(), sidecarKey(sidecar)[1]);
+
+        // size
+        try (ArzWriter writer = ArzWriter.builder(arz).build()) {
+            writer.addDbr("records/index/rec00.dbr", List.of("Class,Indexed,", "value,0,"));
+        }
+        DatabaseReader resized = open(arz, true);
+        assertEquals(1, resized.getRecordCount());
+        assertEquals(Files.size(arz), sidecarKey(sidecar)[0]);
+
+        // same size and modification time, different contents
+        long checksum = sidecarKey(sidecar)[2];
+        FileTime time = Files.getLastModifiedTime(arz);
+        long size = Files.size(arz);
+        try (ArzWriter writer = ArzWriter.builder(arz).build()) {
+            writer.addDbr("records/index/rec01.dbr", List.of("Class,Indexed,", "value,1,"));
+        }
+        Files.setLastModifiedTime(arz, time);
+        assertEquals(size, Files.size(arz));
+        DatabaseReader changed = open(arz, true);
+        assertTrue(changed.recordExists("records/index/rec01.dbr"));
+        assertFalse(changed.recordExists("records/index/rec00.dbr"));
+        assertNotEquals(checksum, sidecarKey(sidecar)[2]);
+    }
+
+    @Test
+    void withPersistentIndex_Given_truncatedOrCorruptSidecar_Then_parseDatabase() throws IOException {
+        Path arz = indexedDatabase();
+        Path sidecar = arz.resolveSibling("database.arz.idx");
+        open(arz, true);
+        byte[] valid = Files.readAllBytes(sidecar);
+
+        Files.write(sidecar, Arrays.copyOf(valid, valid.length / 2));
+        assertSameRecords(arz, open(arz, true));
+        assertArrayEquals(valid, Files.readAllBytes(sidecar));
+
+        // number of strings far larger than the file
+        byte[] corrupt = valid.clone();
+        ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(0x20, Integer.MAX_VALUE);
+        Files.write(sidecar, corrupt);
+        assertSameRecords(arz, open(arz, true));
+        assertArrayEquals(valid, Files.readAllBytes(sidecar));
+
+        Files.write(sidecar, new byte[]{1, 2, 3});
+        assertSameRecords(arz, open(arz, true));
+        assertArrayEquals(valid, Files.readAllBytes(sidecar));
+    }
+}
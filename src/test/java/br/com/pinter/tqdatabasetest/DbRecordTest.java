@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.models.DbRecord;
+import br.com.pinter.tqdatabase.models.DbVariable;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbRecordTest {
+    @Test
+    void getVariables_Given_constructor_Then_returnUnmodifiableView() {
+        Map<String, DbVariable> variables = new LinkedHashMap<>();
+        variables.put("Class", DbVariable.ofString("Class", new String[]{"Skill"}));
+        DbRecord r = new DbRecord("RECORDS\\A.DBR", 1, "Skill", 24, variables);
+        assertEquals("Skill", r.getRecordClass());
+        assertThrows(UnsupportedOperationException.class, () -> r.getVariables().clear());
+    }
+
+    @Test
+    @SuppressWarnings("removal")
+    void setVariables_Given_deprecatedSetters_Then_equalToConstructedRecord() {
+        DbRecord r = new DbRecord();
+        r.setId("RECORDS\\A.DBR");
+        r.setStringIndex(1);
+        r.setRecordType("Skill");
+        r.setOffset(24);
+        r.getVariables().put("Class", DbVariable.ofString("Class", new String[]{"Skill"}));
+
+        DbRecord expected = new DbRecord("RECORDS\\A.DBR", 1, "Skill", 24,
+                Map.of("Class", DbVariable.ofString("Class", new String[]{"Skill"})));
+        assertEquals(expected, r);
+        assertEquals(List.of("Skill"), r.getListString("Class"));
+
+        r.setVariables(new LinkedHashMap<>());
+        assertNull(r.getRecordClass());
+    }
+}
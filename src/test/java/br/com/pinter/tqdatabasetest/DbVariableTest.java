@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2022 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.models.DbVariable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbVariableTest {
+    @Test
+    void getInt_Given_integerVariable_Then_returnValues() {
+        DbVariable v = DbVariable.of("skillLevel1", DbVariable.Type.INTEGER, new int[]{1, 2, 3});
+        assertEquals(3, v.valuesCount());
+        assertEquals(2, v.getInt(1));
+        assertEquals(6, v.intStream().sum());
+        assertEquals(List.of(1, 2, 3), v.getListInteger());
+        assertEquals(1, v.getFirstValue());
+        assertTrue(v.getListFloat().isEmpty());
+    }
+
+    @Test
+    void getFloat_Given_floatVariable_Then_returnValues() {
+        DbVariable v = DbVariable.ofFloat("characterLife", new float[]{1.5f, 2.5f});
+        assertEquals(2.5f, v.getFloat(1));
+        assertEquals(4.0, v.doubleStream().sum());
+        assertEquals(List.of(1.5f, 2.5f), v.getListFloat());
+        assertEquals(0, v.intStream().count());
+        assertThrows(IllegalStateException.class, () -> v.getInt(0));
+    }
+
+    @Test
+    void getBoolean_Given_booleanVariable_Then_returnValues() {
+        DbVariable v = DbVariable.of("isOk", DbVariable.Type.BOOLEAN, new int[]{1, 0});
+        assertTrue(v.getBoolean(0));
+        assertEquals(List.of(true, false), v.getListBoolean());
+        assertEquals("isOk,1;0,", v.asLine());
+    }
+
+    @Test
+    void asLine_Given_stringVariable_Then_returnLine() {
+        DbVariable v = DbVariable.ofString("skillName1", new String[]{"records/a.dbr", "records/b.dbr"});
+        assertEquals("records/a.dbr", v.getFirstString());
+        assertEquals("skillName1,records/a.dbr;records/b.dbr,", v.asLine());
+        assertEquals(v, DbVariable.ofString("skillName1", new String[]{"records/a.dbr", "records/b.dbr"}));
+    }
+
+    @Test
+    void of_Given_floatType_Then_throwException() {
+        assertThrows(IllegalArgumentException.class, () -> DbVariable.of("x", DbVariable.Type.FLOAT, new int[0]));
+    }
+
+    @Test
+    @SuppressWarnings("removal")
+    void addValue_Given_deprecatedMutators_Then_storeValuesByType() {
+        DbVariable v = new DbVariable();
+        v.setVariableName("isOk");
+        v.setType(DbVariable.Type.BOOLEAN);
+        v.addValue(true);
+        v.addValue(false);
+        assertEquals(DbVariable.of("isOk", DbVariable.Type.BOOLEAN, new int[]{1, 0}), v);
+
+        DbVariable f = new DbVariable();
+        f.setVariableName("characterLife");
+        f.setType(DbVariable.Type.FLOAT);
+        f.addValue(1.5f);
+        assertEquals(List.of(1.5f), f.getListFloat());
+
+        DbVariable s = new DbVariable();
+        s.setType(DbVariable.Type.STRING);
+        s.addValue("records/a.dbr");
+        assertEquals("records/a.dbr", s.getFirstString());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.data.ArcWriter;
+import br.com.pinter.tqdatabase.data.ResourceReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceReaderTest {
+    private static final int PART_SIZE = 4096;
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] b = new byte[buffer.remaining()];
+        buffer.duplicate().get(b);
+        return b;
+    }
+
+    @Test
+    void withParallelInflation_Given_multiPartEntries_Then_returnSameDataAsSequential() throws IOException {
+        Path arc = tempDir.resolve("test.arc");
+        Random random = new Random(1);
+        byte[] large = new byte[100_000];
+        random.nextBytes(large);
+        // compressible data, parts inflate to a different size than they are stored
+        byte[] text = "tagTest=Some text\r\n".repeat(5000).getBytes();
+        byte[] belowThreshold = new byte[3 * PART_SIZE];
+        random.nextBytes(belowThreshold);
+        byte[] single = new byte[PART_SIZE / 2];
+        random.nextBytes(single);
+        String[] names = {"items/large.tex", "text/text_en.txt", "items/below.tex", "items/single.tex"};
+
+        try (ArcWriter writer = ArcWriter.builder(arc).withPartSize(PART_SIZE).build()) {
+            writer.add(names[0], large);
+            writer.add(names[1], text);
+            writer.add(names[2], belowThreshold);
+            writer.add(names[3], single);
+        }
+
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (pool;
+             ResourceReader sequential = ResourceReader.builder(arc).build();
+             ResourceReader parallel = ResourceReader.builder(arc)
+                     .withParallelInflation(r -> {
+                         tasks.incrementAndGet();
+                         pool.execute(r);
+                     }, 4 * PART_SIZE).build()) {
+            for (String name : names) {
+                byte[] expected = sequential.getData(name);
+                assertArrayEquals(expected, parallel.getData(name), name);
+                assertArrayEquals(bytes(sequential.getBuffer(name)), bytes(parallel.getBuffer(name)), name);
+            }
+            assertArrayEquals(large, sequential.getData(names[0]));
+            assertArrayEquals(text, sequential.getData(names[1]));
+        }
+
+        // one task per part of the entries above the threshold, each one read twice
+        int parts = (large.length + PART_SIZE - 1) / PART_SIZE + (text.length + PART_SIZE - 1) / PART_SIZE;
+        assertEquals(parts * 2, tasks.get());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.Text;
+import br.com.pinter.tqdatabase.cache.CacheText;
+import br.com.pinter.tqdatabase.data.ArcWriter;
+import br.com.pinter.tqdatabase.models.StorageType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        CacheText.getInstance().clear();
+    }
+
+    private void writeText(String lang, String text) throws IOException {
+        writeText(tempDir, lang, text);
+    }
+
+    private static void writeText(Path dir, String lang, String... files) throws IOException {
+        try (ArcWriter writer = ArcWriter.builder(dir.resolve("Text_" + lang + ".arc")).build()) {
+            for (int i = 0; i < files.length; i++) {
+                writer.add("ui" + i + ".txt", ("\uFEFF// text\r\n" + files[i]).getBytes(StandardCharsets.UTF_16LE));
+            }
+        }
+    }
+
+    @Test
+    void getString_Given_twoLanguages_Then_keepSeparateTexts() throws IOException {
+        writeText("EN", "tagHello=Hello\r\n");
+        writeText("DE", "tagHello=Hallo\r\n");
+        String[] paths = {tempDir.toString()};
+
+        Text en = new Text(paths, "EN");
+        Text de = new Text(paths, "de");
+        assertEquals("Hello", en.getString("tagHello"));
+        assertEquals("Hallo", de.getString("tagHello"));
+        assertEquals("Hello", en.getString("tagHello"));
+        assertEquals(2, CacheText.getInstance().size());
+        assertEquals("Hallo", CacheText.getInstance().get(CacheText.key("DE", List.of(paths))).get("tagHello"));
+
+        en.clearCache();
+        assertEquals(1, CacheText.getInstance().size());
+        assertEquals("Hallo", de.getString("tagHello"));
+    }
+
+    @Test
+    void getString_Given_layeredPaths_Then_laterFilesOverride() throws IOException {
+        Path base = Files.createDirectory(tempDir.resolve("base"));
+        Path mod = Files.createDirectory(tempDir.resolve("mod"));
+        writeText(base, "EN", "tagA=base a\r\ntagB=base b\r\n", "tagB=base b2\r\ntagC=base c\r\n");
+        writeText(mod, "EN", "tagC=mod c\r\n");
+        String[] paths = {base.toString(), mod.toString()};
+
+        Text parallel = new Text(paths, "EN", false);
+        Text sequential = new Text(paths, "EN", false, Runnable::run);
+        for (Text text : List.of(parallel, sequential)) {
+            assertEquals("base a", text.getString("tagA"));
+            assertEquals("base b2", text.getString("tagB"));
+            assertEquals("mod c", text.getString("tagC"));
+        }
+    }
+
+    @Test
+    void lazy_Given_encodings_Then_returnSameStringsAsPreload() throws IOException {
+        Path base = Files.createDirectory(tempDir.resolve("base"));
+        Path mod = Files.createDirectory(tempDir.resolve("mod"));
+        writeText(base, "EN", "tagA=base a\r\ntagB=\u03b2 base\r\n", "tagC=base c // comment\r\ntagD=d=\ud83d\ude00!\r\n");
+        try (ArcWriter writer = ArcWriter.builder(mod.resolve("Text_EN.arc")).build()) {
+            ByteArrayOutputStream utf8 = new ByteArrayOutputStream();
+            utf8.write(new byte[]{(byte) 0xef, (byte) 0xbb, (byte) 0xbf});
+            // an invalid byte is decoded as a replacement character
+            utf8.write("tagBad=a".getBytes(StandardCharsets.UTF_8));
+            utf8.write(0xff);
+            utf8.write("b\n".getBytes(StandardCharsets.UTF_8));
+            // a truncated sequence at the end of a value, and a non-breaking space not trimmed
+            utf8.write("tagCut=x".getBytes(StandardCharsets.UTF_8));
+            utf8.write(new byte[]{(byte) 0xe2, (byte) 0x82});
+            utf8.write("\ntagNbsp=\u00a0y\u00a0\n".getBytes(StandardCharsets.UTF_8));
+            utf8.write("tagE=\u00e9\u20ac\ud83d\ude00 mod\ntagC=mod \u00e7\n".getBytes(StandardCharsets.UTF_8));
+            writer.add("utf8.txt", utf8.toByteArray());
+            writer.add("latin1.txt", "tagF=caf\u00e9\r\n".getBytes(StandardCharsets.ISO_8859_1), StorageType.UNCOMPRESSED);
+            writer.add("utf16be.txt", "\uFEFFtagG=g\u03b2 \ud83d\ude00\r\n//tagH=h\r\n".getBytes(StandardCharsets.UTF_16BE));
+            // a lone high surrogate, and an odd trailing byte decoded as replacement characters
+            ByteArrayOutputStream lone = new ByteArrayOutputStream();
+            lone.write("\uFEFFtagI=i".getBytes(StandardCharsets.UTF_16LE));
+            lone.write(new byte[]{0x00, (byte) 0xd8});
+            lone.write("\ntagJ=j\ntagK=k".getBytes(StandardCharsets.UTF_16LE));
+            writer.add("lone.txt", lone.toByteArray());
+            lone.write(0x20);
+            writer.add("odd.txt", lone.toByteArray());
+        }
+        String[] paths = {base.toString(), mod.toString()};
+
+        Text eager = new Text(paths, "EN", false);
+        try (Text lazy = Text.lazy(paths, "EN")) {
+            for (String tag : List.of("tagA", "tagB", "tagC", "tagD", "tagBad", "tagCut", "tagNbsp", "tagE", "tagF",
+                    "tagG", "tagH", "tagI", "tagJ", "tagK", "tagMissing")) {
+                assertEquals(eager.getString(tag), lazy.getString(tag), tag);
+            }
+            assertEquals("mod \u00e7", lazy.getString("tagC"));
+            assertEquals("\u00e9\u20ac\ud83d\ude00 mod", lazy.getString("tagE"));
+            assertEquals("d=\ud83d\ude00!", lazy.getString("tagD"));
+            assertEquals("g\u03b2 \ud83d\ude00", lazy.getString("tagG"));
+            // the decoder replaces a high surrogate and the next character
+            assertEquals("i\ufffdtagJ=j", lazy.getString("tagI"));
+            assertNull(lazy.getString(null));
+        }
+        assertEquals(0, CacheText.getInstance().size());
+    }
+
+    @Test
+    void clearCache_Given_lazyText_Then_keepSharedTableAndReloadIndex() throws Exception {
+        writeText("EN", "tagHello=Hello\r\n");
+        String[] paths = {tempDir.toString()};
+        Text eager = new Text(paths, "EN");
+        assertEquals("Hello", eager.getString("tagHello"));
+        assertEquals(1, CacheText.getInstance().size());
+
+        try (Text lazy = Text.lazy(paths, "EN")) {
+            assertEquals("Hello", lazy.getString("tagHello"));
+            lazy.clearCache();
+            assertEquals(1, CacheText.getInstance().size());
+
+            // lookups racing with clearCache never see a closed index
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> lookups = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    lookups.add(executor.submit(() -> {
+                        for (int i = 0; i < 200; i++) {
+                            assertEquals("Hello", lazy.getString("tagHello"));
+                            assertNull(lazy.getString("tagMissing" + i));
+                        }
+                        return null;
+                    }));
+                }
+                for (int i = 0; i < 50; i++) {
+                    lazy.clearCache();
+                }
+                for (Future<?> f : lookups) {
+                    f.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.data.ArcWriter;
+import br.com.pinter.tqdatabase.data.ResourceReader;
+import br.com.pinter.tqdatabase.models.StorageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readText_Given_commentsAndSeparators_Then_splitAtFirstEquals() throws IOException {
+        String text = "\uFEFFtagFirst=First line\r\n"
+                + "// comment=ignored\r\n"
+                + "  tagTrimmed=Trimmed value  // trailing comment\n"
+                + "tagEquals=a=b\r"
+                + "tagEmpty=\r\n"
+                + "=no tag\r\n"
+                + "no separator\r\n"
+                + "tagLast=Last";
+        Path arc = tempDir.resolve("Text_EN.arc");
+        try (ArcWriter writer = ArcWriter.builder(arc).build()) {
+            writer.add("utf16.txt", text.getBytes(StandardCharsets.UTF_16LE));
+            writer.add("latin1.txt", "tagLatin=Caf\u00e9\r\n".getBytes(StandardCharsets.ISO_8859_1), StorageType.UNCOMPRESSED);
+        }
+
+        try (ResourceReader reader = ResourceReader.builder(arc).build()) {
+            assertEquals(Map.of("tagFirst", "First line",
+                    "tagTrimmed", "Trimmed value",
+                    "tagEquals", "a=b",
+                    "tagLast", "Last",
+                    "tagLatin", "Caf\u00e9"), reader.readText());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2025 Emerson Pinter - All Rights Reserved
+ */
+
+/*    This file is part of TQ Database.
+
+    TQ Database is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    TQ Database is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with TQ Database.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+package br.com.pinter.tqdatabasetest;
+
+import br.com.pinter.tqdatabase.models.TextTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextTableTest {
+    @Test
+    void build_Given_manyTags_Then_returnSameValuesAsHashMap() {
+        Map<String, String> expected = new HashMap<>();
+        TextTable.Builder builder = TextTable.builder();
+        for (int i = 0; i < 10000; i++) {
+            builder.put("tag" + i, "value " + i);
+            expected.put("tag" + i, "value " + i);
+        }
+        // replaced values and a non latin-1 value after latin-1 text
+        builder.put("tag5", "replaced");
+        expected.put("tag5", "replaced");
+        builder.put("tagGreek", "\u039a\u03b1\u03bb\u03b7\u03bc\u03ad\u03c1\u03b1");
+        expected.put("tagGreek", "\u039a\u03b1\u03bb\u03b7\u03bc\u03ad\u03c1\u03b1");
+
+        TextTable table = builder.build();
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected, table);
+        assertEquals("replaced", table.get("tag5"));
+        assertEquals("\u039a\u03b1\u03bb\u03b7\u03bc\u03ad\u03c1\u03b1", table.get("tagGreek"));
+        assertEquals("value 9999", table.get("tag9999"));
+        assertNull(table.get("tag10000"));
+        assertFalse(table.containsKey(null));
+        assertEquals(0, table.indexOf("tag0"));
+        assertEquals(-1, table.indexOf("tag10000"));
+        assertTrue(TextTable.empty().isEmpty());
+        assertNull(TextTable.empty().get("tag0"));
+    }
+
+    @Test
+    void putAll_Given_tables_Then_laterTablesOverride() {
+        TextTable latin1 = TextTable.builder().put("tagA", "a").put("tagB", "b").build();
+        TextTable wide = TextTable.builder().put("tagB", "\u03b2").put("tagC", "c").build();
+
+        TextTable merged = TextTable.builder().putAll(latin1).putAll(wide).build();
+        assertEquals(Map.of("tagA", "a", "tagB", "\u03b2", "tagC", "c"), merged);
+        assertEquals(Map.of("tagA", "a", "tagB", "b", "tagC", "c"),
+                TextTable.builder().putAll(wide).putAll(latin1).build());
+    }
+}
@@ -27,6 +27,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -60,6 +61,7 @@ class TextTest {
     @Test
     void loadText_Should_loadAllStringsAndReturnNull() throws IOException {
         assertNull(text.getString(null));
-        assertTrue(CacheText.getInstance().size() > 2);
+        assertEquals(1, CacheText.getInstance().size());
+        assertTrue(CacheText.getInstance().get(CacheText.key("EN", List.of("src/test/resources"))).size() > 2);
     }
 }
\ No newline at end of file